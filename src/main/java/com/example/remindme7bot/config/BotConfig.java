@@ -6,6 +6,9 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
+import java.util.Map;
+import java.util.Set;
+
 @Configuration
 @PropertySource("application.properties")
 @Data
@@ -17,4 +20,113 @@ public class BotConfig {
 
     @Value("${bot.token}")
     String token;
+
+    // адрес Bot API вида https://api.telegram.org/bot (пусто - адрес по умолчанию)
+    @Value("${bot.api-url:}")
+    String apiUrl;
+
+    // способ получения обновлений: polling или webhook
+    @Value("${bot.mode:polling}")
+    String mode;
+
+    // публичный адрес, который Telegram будет вызывать в режиме webhook
+    @Value("${bot.webhook.url:}")
+    String webhookUrl;
+
+    @Value("${bot.webhook.port:8443}")
+    int webhookPort;
+
+    @Value("${bot.webhook.path:/webhook}")
+    String webhookPath;
+
+    // обязателен в режиме webhook: без него бот не запускается
+    @Value("${bot.webhook.secret:}")
+    String webhookSecret;
+
+    @Value("${bot.webhook.threads:4}")
+    int webhookThreads;
+
+    // 0 - по количеству ядер процессора
+    @Value("${bot.dispatcher.parallelism:0}")
+    int dispatcherParallelism;
+
+    // лимиты Telegram на исходящие сообщения
+    @Value("${bot.outbound.global-rate:30}")
+    double outboundGlobalRate;
+
+    @Value("${bot.outbound.chat-rate:1}")
+    double outboundChatRate;
+
+    @Value("${bot.outbound.chat-burst:3}")
+    double outboundChatBurst;
+
+    @Value("${bot.outbound.max-attempts:5}")
+    int outboundMaxAttempts;
+
+    // сколько запросов к Telegram выполняется одновременно (скорость всё равно ограничена global-rate)
+    @Value("${bot.outbound.senders:8}")
+    int outboundSenders;
+
+    // сколько секунд при остановке дожидаться отправки уже принятых сообщений
+    @Value("${bot.outbound.drain-seconds:10}")
+    long outboundDrainSeconds;
+
+    // лимиты на входящие обновления от одного чата (токенов в секунду; стоимость команд - bot.inbound.costs, остальные - 1)
+    @Value("${bot.inbound.chat-rate:2}")
+    double inboundChatRate;
+
+    @Value("${bot.inbound.chat-burst:10}")
+    double inboundChatBurst;
+
+    @Value("#{${bot.inbound.costs:{:}}}")
+    Map<String, Integer> inboundCosts;
+
+    // перегрузка: пока очередь обработки длиннее, дорогие обновления (стоимость больше 1) отбрасываются
+    @Value("${bot.inbound.shed-queue-depth:1000}")
+    int inboundShedQueueDepth;
+
+    // кто может запускать рассылку всем пользователям (chatId через запятую)
+    @Value("${bot.admin-chat-ids:}")
+    Set<Long> adminChatIds;
+
+    // рассылка: сколько пользователей читается и отправляется между контрольными точками
+    @Value("${bot.broadcast.page-size:100}")
+    int broadcastPageSize;
+
+    // незавершённые диалоги
+    @Value("${bot.chat-state.idle-ttl-minutes:1440}")
+    long chatStateIdleTtlMinutes;
+
+    @Value("${bot.chat-state.max-size:100000}")
+    int chatStateMaxSize;
+
+    // сколько готовых списков задач держать в памяти
+    @Value("${bot.todo-list-cache.max-size:10000}")
+    int todoListCacheSize;
+
+    // поисковые индексы задач в памяти: сколько минут хранить неиспользуемый индекс и для скольких пользователей
+    @Value("${bot.search.idle-ttl-minutes:30}")
+    long searchIdleTtlMinutes;
+
+    @Value("${bot.search.max-users:10000}")
+    int searchMaxUsers;
+
+    // перенос выполненных задач в архив: размер пачки (интервал - bot.archive.interval-seconds)
+    @Value("${bot.archive.batch-size:500}")
+    int archiveBatchSize;
+
+    // напоминания одним сообщением на пользователя (false - отдельное сообщение на каждую задачу)
+    @Value("${bot.reminders.digest:true}")
+    boolean reminderDigest;
+
+    // адрес сервера метрик (порт 0 - сервер не запускается)
+    @Value("${bot.metrics.host:127.0.0.1}")
+    String metricsHost;
+
+    @Value("${bot.metrics.port:9464}")
+    int metricsPort;
+
+    public boolean isWebhookMode() {
+        return "webhook".equalsIgnoreCase(mode);
+    }
 }
@@ -1,15 +1,23 @@
 package com.example.remindme7bot.config;
 
 import com.example.remindme7bot.service.TelegramBot;
+import com.example.remindme7bot.service.UpdateTracker;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import org.telegram.telegrambots.meta.TelegramBotsApi;
+import org.telegram.telegrambots.meta.api.methods.updates.GetUpdates;
+import org.telegram.telegrambots.meta.api.methods.updates.SetWebhook;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.generics.BotSession;
 import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
 @Slf4j
 @Component
 public class BotInitializer {
@@ -18,17 +26,73 @@ public class BotInitializer {
     final
     TelegramBot bot;
 
+    @Autowired
+    private BotConfig config;
+
+    @Autowired
+    private UpdateTracker updateTracker;
+
+    private WebhookServer webhookServer;
+    private BotSession botSession;
+
     public BotInitializer(TelegramBot bot) {
         this.bot = bot;
     }
 
     @EventListener({ContextRefreshedEvent.class})
     public void init() throws TelegramApiException {
+        if (config.isWebhookMode()) {
+            initWebhook();
+            return;
+        }
         TelegramBotsApi telegramBotsApi = new TelegramBotsApi(DefaultBotSession.class);
         try {
-            telegramBotsApi.registerBot(bot);
+            confirmProcessedUpdates();
+            botSession = telegramBotsApi.registerBot(bot);
         } catch (TelegramApiException e) {
             log.error("Error occurred: " + e.getMessage());
         }
     }
+
+    /**
+     * Сессия начинает опрос с offset 0, и Telegram заново отдаёт последнюю полученную до остановки пачку.
+     * Подтверждаем всё, что уже обработано, чтобы опрос продолжился с места остановки
+     */
+    private void confirmProcessedUpdates() throws TelegramApiException {
+        long lastUpdateId = updateTracker.getLastUpdateId();
+        if (lastUpdateId <= 0) return;
+        bot.clearWebhook();
+        GetUpdates getUpdates = new GetUpdates();
+        getUpdates.setOffset((int) (lastUpdateId + 1));
+        getUpdates.setLimit(1);
+        getUpdates.setTimeout(0);
+        bot.execute(getUpdates);
+        log.info("Updates confirmed up to " + lastUpdateId);
+    }
+
+    /**
+     * Режим webhook: поднимаем свой HTTP-приёмник и сообщаем Telegram его адрес
+     */
+    private synchronized void initWebhook() {
+        if (webhookServer != null) return;
+        try {
+            webhookServer = new WebhookServer(new InetSocketAddress(config.getWebhookPort()),
+                    config.getWebhookPath(), config.getWebhookSecret(), config.getWebhookThreads(),
+                    bot::onUpdateReceived);
+            webhookServer.start();
+
+            SetWebhook setWebhook = new SetWebhook(config.getWebhookUrl());
+            if (!config.getWebhookSecret().isEmpty()) setWebhook.setSecretToken(config.getWebhookSecret());
+            bot.execute(setWebhook);
+        } catch (IOException | TelegramApiException e) {
+            log.error("Error occurred: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (webhookServer != null) webhookServer.stop();
+        // новые обновления больше не принимаются, очередь UpdateDispatcher дорабатывается при его остановке
+        if (botSession != null && botSession.isRunning()) botSession.stop();
+    }
 }
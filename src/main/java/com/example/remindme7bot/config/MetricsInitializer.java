@@ -0,0 +1,90 @@
+package com.example.remindme7bot.config;
+
+import com.example.remindme7bot.service.ChatStateStore;
+import com.example.remindme7bot.service.OutboundMessageQueue;
+import com.example.remindme7bot.service.TodoListCache;
+import com.example.remindme7bot.service.TodoSearchIndex;
+import com.example.remindme7bot.service.UpdateDispatcher;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+/**
+ * Регистрация метрик состояния (размеры очередей и кэшей) и запуск сервера метрик
+ */
+@Slf4j
+@Component
+public class MetricsInitializer {
+
+    @Autowired
+    private BotConfig config;
+    @Autowired
+    private MeterRegistry registry;
+    @Autowired(required = false)
+    private PrometheusMeterRegistry prometheusRegistry;
+    @Autowired
+    private UpdateDispatcher updateDispatcher;
+    @Autowired
+    private OutboundMessageQueue outboundQueue;
+    @Autowired
+    private ChatStateStore chatStates;
+    @Autowired
+    private TodoListCache todoListCache;
+    @Autowired
+    private TodoSearchIndex todoSearchIndex;
+
+    private MetricsServer metricsServer;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("bot.dispatcher.queue.depth", updateDispatcher, UpdateDispatcher::getQueueDepth)
+                .description("Обновления, ожидающие обработки")
+                .register(registry);
+        Gauge.builder("bot.outbound.queue.depth", outboundQueue, OutboundMessageQueue::getQueueDepth)
+                .description("Запросы к Telegram, ожидающие отправки")
+                .register(registry);
+        Gauge.builder("bot.chat.states", chatStates, ChatStateStore::size)
+                .description("Незавершённые диалоги в памяти")
+                .register(registry);
+        Gauge.builder("bot.todo.list.cache.size", todoListCache, TodoListCache::size)
+                .register(registry);
+        FunctionCounter.builder("bot.todo.list.cache.hits", todoListCache, TodoListCache::getHits)
+                .register(registry);
+        FunctionCounter.builder("bot.todo.list.cache.misses", todoListCache, TodoListCache::getMisses)
+                .register(registry);
+        Gauge.builder("bot.search.indexes", todoSearchIndex, TodoSearchIndex::size)
+                .description("Поисковые индексы пользователей в памяти")
+                .register(registry);
+
+        startServer();
+    }
+
+    private void startServer() {
+        if (config.getMetricsPort() <= 0) return;
+        if (prometheusRegistry == null) {
+            log.warn("Prometheus registry is not available, metrics server is not started");
+            return;
+        }
+        try {
+            metricsServer = new MetricsServer(
+                    new InetSocketAddress(config.getMetricsHost(), config.getMetricsPort()), prometheusRegistry);
+            metricsServer.start();
+        } catch (IOException e) {
+            log.error("Error occurred: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (metricsServer != null) metricsServer.stop();
+    }
+}
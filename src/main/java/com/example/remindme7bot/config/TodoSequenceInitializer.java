@@ -0,0 +1,39 @@
+package com.example.remindme7bot.config;
+
+import com.example.remindme7bot.repository.TodoRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Раньше id задач выдавал AUTO_INCREMENT. При переходе на генератор todo_seq
+ * его нужно сдвинуть за уже существующие id, иначе новые задачи получат занятые номера
+ */
+@Slf4j
+@Component
+public class TodoSequenceInitializer {
+
+    private static final int ALLOCATION_SIZE = 50;
+
+    final JdbcTemplate jdbcTemplate;
+
+    // TodoRepository нужен, чтобы схема (и таблица todo_seq) была создана раньше
+    public TodoSequenceInitializer(JdbcTemplate jdbcTemplate, TodoRepository todoRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void init() {
+        Long maxId = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from todo_data_table", Long.class);
+        if (maxId == null || maxId == 0) return;
+        long nextValue = maxId + ALLOCATION_SIZE + 1;
+        try {
+            int updated = jdbcTemplate.update("update todo_seq set next_val = ? where next_val < ?", nextValue, nextValue);
+            if (updated > 0) log.info("todo_seq moved to " + nextValue);
+        } catch (DataAccessException e) {
+            log.warn("Could not check todo_seq: " + e.getMessage());
+        }
+    }
+}
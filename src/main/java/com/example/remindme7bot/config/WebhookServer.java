@@ -0,0 +1,92 @@
+package com.example.remindme7bot.config;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Встроенный HTTP-приёмник обновлений Telegram (режим webhook).
+ * Проверяет секретный токен, разбирает JSON и сразу передаёт обновление дальше
+ * (в тот же диспетчер, что и при long polling), не дожидаясь его обработки.
+ * Без секретного токена сервер не создаётся: иначе любой мог бы прислать поддельное обновление
+ */
+@Slf4j
+public class WebhookServer {
+
+    static final String SECRET_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final byte[] secretToken;
+    private final Consumer<Update> consumer;
+
+    public WebhookServer(InetSocketAddress address, String path, String secretToken,
+                         int threads, Consumer<Update> consumer) throws IOException {
+        if (secretToken == null || secretToken.isEmpty())
+            throw new IllegalArgumentException("Webhook mode requires bot.webhook.secret (MY_WEBHOOK_SECRET)");
+        this.secretToken = secretToken.getBytes(StandardCharsets.UTF_8);
+        this.consumer = consumer;
+        this.server = HttpServer.create(address, 0);
+        this.executor = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("webhook-"));
+        server.createContext(path, this::handle);
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+        log.info("Webhook server started on port " + getPort());
+    }
+
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange; InputStream body = exchange.getRequestBody()) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            if (!isAuthorized(exchange.getRequestHeaders().getFirst(SECRET_HEADER))) {
+                log.warn("Webhook request with wrong secret token from " + exchange.getRemoteAddress());
+                exchange.sendResponseHeaders(401, -1);
+                return;
+            }
+            Update update;
+            try {
+                update = objectMapper.readValue(body, Update.class);
+            } catch (IOException e) {
+                log.warn("Wrong webhook update: " + e.getMessage());
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+            consumer.accept(update);
+            exchange.sendResponseHeaders(200, -1);
+        }
+    }
+
+    private boolean isAuthorized(String header) {
+        if (header == null) return false;
+        return MessageDigest.isEqual(secretToken, header.getBytes(StandardCharsets.UTF_8));
+    }
+}
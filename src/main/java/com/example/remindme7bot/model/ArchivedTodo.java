@@ -0,0 +1,31 @@
+package com.example.remindme7bot.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+/**
+ * Выполненная задача в архиве. Переносится из todoDataTable фоновой задачей с тем же id;
+ * связи с пользователем нет, чтобы архив не нагружал индексы рабочих таблиц
+ */
+@Entity(name = "todoArchiveDataTable")
+@Table(indexes = @Index(name = "idx_todo_archive_chat_completed", columnList = "chatId, completedAt, id"))
+@Data
+public class ArchivedTodo {
+    @Id
+    private Long id;
+    private Long chatId;
+    private String title;
+    private String description;
+    private Boolean important;
+    private LocalDate deadline;
+    private Timestamp completedAt;
+
+    public ArchivedTodo() {
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.remindme7bot.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import lombok.Data;
+
+import java.sql.Timestamp;
+
+/**
+ * Рассылка всем пользователям. lastChatId - контрольная точка: всем пользователям с chatId не больше него
+ * сообщение уже отправлено (или взято в отправку), после перезапуска рассылка продолжается с неё
+ */
+@Entity(name = "broadcastsDataTable")
+@Data
+public class Broadcast {
+
+    public enum Status {
+        RUNNING,
+        FINISHED,
+        CANCELLED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(length = 4096)
+    private String text;
+    @Enumerated(EnumType.STRING)
+    private Status status;
+    // кто запустил рассылку и его сообщение с ходом рассылки (изменяется на месте)
+    private Long adminChatId;
+    private Integer progressMessageId;
+    private Long lastChatId;
+    private long total;
+    private long sent;
+    private long failed;
+    private Timestamp createdAt;
+    private Timestamp finishedAt;
+
+    public Broadcast() {
+    }
+}
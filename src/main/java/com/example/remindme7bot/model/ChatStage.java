@@ -0,0 +1,52 @@
+package com.example.remindme7bot.model;
+
+/**
+ * Этап диалога с пользователем. Каждый этап знает, какую клавиатуру показывать.
+ * Код этапа хранится в БД (ChatStateRecord), поэтому коды существующих этапов не меняются
+ */
+public enum ChatStage {
+    NEW_TODO_TITLE(0, Keyboard.CANCEL),
+    NEW_TODO_DESCRIPTION(1, Keyboard.CANCEL),
+    EDITING_TITLE(2, Keyboard.CANCEL),
+    EDITING_DESCRIPTION(3, Keyboard.CANCEL),
+    EDITING_DEADLINE(4, Keyboard.CANCEL),
+    EDITING_NOTIFY(5, Keyboard.CANCEL),
+    EDITING_RECURRENCE(6, Keyboard.CANCEL);
+
+    /**
+     * Клавиатура под сообщениями бота
+     */
+    public enum Keyboard {
+        DEFAULT,
+        CANCEL
+    }
+
+    private static final ChatStage[] BY_CODE = new ChatStage[values().length];
+
+    static {
+        for (ChatStage stage : values()) BY_CODE[stage.code] = stage;
+    }
+
+    private final byte code;
+    private final Keyboard keyboard;
+
+    ChatStage(int code, Keyboard keyboard) {
+        this.code = (byte) code;
+        this.keyboard = keyboard;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    public Keyboard getKeyboard() {
+        return keyboard;
+    }
+
+    /**
+     * Этап по сохранённому коду (null, если код неизвестен)
+     */
+    public static ChatStage fromCode(byte code) {
+        return code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+    }
+}
@@ -2,17 +2,30 @@ package com.example.remindme7bot.model;
 
 import lombok.Data;
 
+/**
+ * Состояние диалога с пользователем: этап и данные, собранные на предыдущих этапах
+ */
 @Data
 public class ChatState {
-    private String Title;
-    private boolean expectingTitle;
-
+    private ChatStage stage;
     private Long taskId;
-    private boolean editingTask;
+    private String title;
+    // сообщение с карточкой задачи, которое нужно обновить после ввода нового значения
+    private Integer messageId;
+
+    public ChatState() {
+    }
+
+    public ChatState(ChatStage stage) {
+        this.stage = stage;
+    }
 
-    private boolean editingTitle;
-    private boolean editingDescription;
-    private boolean editingDeadline;
+    public ChatState(ChatStage stage, Long taskId) {
+        this.stage = stage;
+        this.taskId = taskId;
+    }
 
-    private boolean editingNotify;
+    public ChatStage.Keyboard getKeyboard() {
+        return stage.getKeyboard();
+    }
 }
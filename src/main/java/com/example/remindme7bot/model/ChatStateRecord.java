@@ -0,0 +1,47 @@
+package com.example.remindme7bot.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.Data;
+import org.springframework.data.domain.Persistable;
+
+import java.sql.Timestamp;
+
+/**
+ * Сохранённое состояние диалога, чтобы начатые действия пережили перезапуск бота
+ */
+@Entity(name = "chatStatesDataTable")
+@Table(indexes = @Index(name = "idx_chat_state_updated_at", columnList = "updatedAt"))
+@Data
+public class ChatStateRecord implements Persistable<Long> {
+
+    @Id
+    private Long chatId;
+    @Column(name = "stage")
+    private byte stage;
+    private Long taskId;
+    private String title;
+    private Integer messageId;
+    private Timestamp updatedAt;
+
+    // новая запись сохраняется одним INSERT, без предварительного SELECT
+    @Transient
+    private boolean newRecord;
+
+    public ChatStateRecord() {
+    }
+
+    @Override
+    public Long getId() {
+        return chatId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return newRecord;
+    }
+}
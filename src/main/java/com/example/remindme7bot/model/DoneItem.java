@@ -0,0 +1,9 @@
+package com.example.remindme7bot.model;
+
+import java.sql.Timestamp;
+
+/**
+ * Строка истории выполненных задач
+ */
+public record DoneItem(Long id, String title, Timestamp completedAt) {
+}
@@ -0,0 +1,7 @@
+package com.example.remindme7bot.model;
+
+/**
+ * Сохранённая строка настроек уведомлений пользователя
+ */
+public record NotifyPreference(Long chatId, String editNotify) {
+}
@@ -0,0 +1,101 @@
+package com.example.remindme7bot.model;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.StringJoiner;
+
+/**
+ * Расписание уведомлений пользователя, разобранное из строки вида "8:00; 2; 1,2,3":
+ * время отправки; за сколько дней напоминать об обычных задачах; за сколько дней - о важных
+ */
+public final class NotifySchedule {
+
+    public static final int MAX_DAYS_BEFORE = 30;
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("H:mm");
+
+    // Расписание по умолчанию (тариф «Базовый»): в 12:00, за день для обычных задач, за 2 дня и за день для важных
+    public static final NotifySchedule DEFAULT = parse("12:00; 1; 1,2");
+
+    private final LocalTime time;
+    // битовые маски: i-й бит означает "напомнить за i дней"
+    private final int normalDays;
+    private final int importantDays;
+
+    private NotifySchedule(LocalTime time, int normalDays, int importantDays) {
+        this.time = time;
+        this.normalDays = normalDays;
+        this.importantDays = importantDays;
+    }
+
+    /**
+     * Разбор строки настроек. При неверном формате бросает IllegalArgumentException
+     */
+    public static NotifySchedule parse(String value) {
+        if (value == null) throw new IllegalArgumentException("Empty notify schedule");
+        String[] parts = value.split(";");
+        if (parts.length != 3) throw new IllegalArgumentException("Wrong notify schedule: " + value);
+        try {
+            LocalTime time = LocalTime.parse(parts[0].trim(), TIME_FORMAT);
+            return new NotifySchedule(time, parseDays(parts[1]), parseDays(parts[2]));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Wrong notify time: " + value, e);
+        }
+    }
+
+    private static int parseDays(String value) {
+        int mask = 0;
+        for (String day : value.split(",")) {
+            int days;
+            try {
+                days = Integer.parseInt(day.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Wrong notify days: " + value, e);
+            }
+            if (days < 0 || days > MAX_DAYS_BEFORE)
+                throw new IllegalArgumentException("Wrong notify days: " + value);
+            mask |= 1 << days;
+        }
+        return mask;
+    }
+
+    public LocalTime getTime() {
+        return time;
+    }
+
+    /**
+     * Минута суток, в которую отправляются уведомления
+     */
+    public int getMinuteOfDay() {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    /**
+     * Нужно ли напомнить о задаче, до дедлайна которой осталось daysLeft дней
+     */
+    public boolean isDue(boolean important, long daysLeft) {
+        if (daysLeft < 0 || daysLeft > MAX_DAYS_BEFORE) return false;
+        int mask = important ? importantDays : normalDays;
+        return (mask & (1 << daysLeft)) != 0;
+    }
+
+    /**
+     * Самое раннее напоминание (в днях до дедлайна)
+     */
+    public int getMaxDaysBefore() {
+        return 31 - Integer.numberOfLeadingZeros(normalDays | importantDays);
+    }
+
+    @Override
+    public String toString() {
+        return time.format(TIME_FORMAT) + "; " + daysToString(normalDays) + "; " + daysToString(importantDays);
+    }
+
+    private static String daysToString(int mask) {
+        StringJoiner joiner = new StringJoiner(",");
+        for (int i = 0; i <= MAX_DAYS_BEFORE; i++) {
+            if ((mask & (1 << i)) != 0) joiner.add(String.valueOf(i));
+        }
+        return joiner.toString();
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.remindme7bot.model;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+import java.util.StringJoiner;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Правило повторения задачи, разобранное из строки вида "ежедневно", "еженедельно: пн, ср, пт",
+ * "ежемесячно: 15" или "каждые 3 дня". Следующие даты не хранятся, а вычисляются по правилу
+ * от дедлайна задачи (дедлайн - текущее или пропущенное повторение)
+ */
+public final class Recurrence {
+
+    private static final String[] WEEKDAYS = {"пн", "вт", "ср", "чт", "пт", "сб", "вс"};
+    private static final Pattern EVERY_DAYS = Pattern.compile("каждые?\\s+(\\d+)\\s*(дн[а-я]*\\.?)?");
+    private static final int MAX_INTERVAL = 365;
+
+    private enum Kind {
+        DAILY,
+        WEEKLY,
+        MONTHLY,
+        EVERY_DAYS
+    }
+
+    private final Kind kind;
+    // WEEKLY - битовая маска дней недели (0 - понедельник), MONTHLY - число месяца (0 - не задано),
+    // EVERY_DAYS - интервал в днях
+    private final int value;
+
+    private Recurrence(Kind kind, int value) {
+        this.kind = kind;
+        this.value = value;
+    }
+
+    /**
+     * Разбор правила. При неверном формате бросает IllegalArgumentException
+     */
+    public static Recurrence parse(String text) {
+        if (text == null) throw new IllegalArgumentException("Empty recurrence");
+        String value = text.trim().toLowerCase(Locale.ROOT);
+        if (value.equals("ежедневно") || value.equals("каждый день")) return new Recurrence(Kind.DAILY, 0);
+        if (value.startsWith("еженедельно")) return new Recurrence(Kind.WEEKLY, parseWeekdays(value.substring(11)));
+        if (value.startsWith("ежемесячно")) return new Recurrence(Kind.MONTHLY, parseDayOfMonth(value.substring(10)));
+        Matcher matcher = EVERY_DAYS.matcher(value);
+        if (matcher.matches()) {
+            int days = Integer.parseInt(matcher.group(1));
+            if (days < 1 || days > MAX_INTERVAL) throw new IllegalArgumentException("Wrong interval: " + text);
+            return days == 1 ? new Recurrence(Kind.DAILY, 0) : new Recurrence(Kind.EVERY_DAYS, days);
+        }
+        throw new IllegalArgumentException("Wrong recurrence: " + text);
+    }
+
+    private static int parseWeekdays(String value) {
+        value = value.replace(":", " ").trim();
+        if (value.isEmpty()) throw new IllegalArgumentException("No weekdays");
+        int mask = 0;
+        for (String day : value.split("[,\\s]+")) {
+            int index = indexOf(day);
+            if (index < 0) throw new IllegalArgumentException("Wrong weekday: " + day);
+            mask |= 1 << index;
+        }
+        return mask;
+    }
+
+    private static int indexOf(String day) {
+        for (int i = 0; i < WEEKDAYS.length; i++) if (WEEKDAYS[i].equals(day)) return i;
+        return -1;
+    }
+
+    private static int parseDayOfMonth(String value) {
+        value = value.replace(":", " ").trim();
+        if (value.isEmpty()) return 0;
+        int day;
+        try {
+            day = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Wrong day of month: " + value, e);
+        }
+        if (day < 1 || day > 31) throw new IllegalArgumentException("Wrong day of month: " + value);
+        return day;
+    }
+
+    /**
+     * Правило, привязанное к дате: "ежемесячно" без числа повторяется в то же число, что и date
+     */
+    public Recurrence anchoredAt(LocalDate date) {
+        return kind == Kind.MONTHLY && value == 0 ? new Recurrence(Kind.MONTHLY, date.getDayOfMonth()) : this;
+    }
+
+    /**
+     * Ближайшее повторение, не раньше date. anchor - дедлайн задачи, от него отсчитываются интервалы
+     */
+    public LocalDate firstOnOrAfter(LocalDate anchor, LocalDate date) {
+        return switch (kind) {
+            case DAILY -> date;
+            case WEEKLY -> nextWeekday(date);
+            case MONTHLY -> nextDayOfMonth(value == 0 ? anchor.getDayOfMonth() : value, date);
+            case EVERY_DAYS -> nextInterval(anchor, date);
+        };
+    }
+
+    private LocalDate nextWeekday(LocalDate date) {
+        for (int i = 0; i < 7; i++) {
+            LocalDate day = date.plusDays(i);
+            if ((value & (1 << day.getDayOfWeek().ordinal())) != 0) return day;
+        }
+        throw new IllegalStateException("No weekdays in " + this);
+    }
+
+    private static LocalDate nextDayOfMonth(int dayOfMonth, LocalDate date) {
+        LocalDate candidate = dayInMonth(YearMonth.from(date), dayOfMonth);
+        return candidate.isBefore(date) ? dayInMonth(YearMonth.from(date).plusMonths(1), dayOfMonth) : candidate;
+    }
+
+    private LocalDate nextInterval(LocalDate anchor, LocalDate date) {
+        if (!date.isAfter(anchor)) return anchor;
+        long periods = (ChronoUnit.DAYS.between(anchor, date) + value - 1) / value;
+        return anchor.plusDays(periods * value);
+    }
+
+    // в коротком месяце "31 число" - последний день месяца
+    private static LocalDate dayInMonth(YearMonth month, int dayOfMonth) {
+        return month.atDay(Math.min(dayOfMonth, month.lengthOfMonth()));
+    }
+
+    /**
+     * Текущее повторение задачи с дедлайном anchor: сам дедлайн или, если он прошёл, ближайшее с сегодняшнего дня
+     */
+    public LocalDate occurrence(LocalDate anchor, LocalDate today) {
+        return anchor.isBefore(today) ? firstOnOrAfter(anchor, today) : anchor;
+    }
+
+    /**
+     * Повторение, следующее за occurrence (дедлайн после выполнения задачи)
+     */
+    public LocalDate following(LocalDate anchor, LocalDate occurrence) {
+        return firstOnOrAfter(anchor, occurrence.plusDays(1));
+    }
+
+    /**
+     * Дедлайн задачи на сегодня: для повторяющейся задачи - текущее повторение, иначе сам дедлайн
+     */
+    public static LocalDate dueDate(String recurrence, LocalDate deadline, LocalDate today) {
+        if (recurrence == null || deadline == null) return deadline;
+        return parse(recurrence).occurrence(deadline, today);
+    }
+
+    @Override
+    public String toString() {
+        return switch (kind) {
+            case DAILY -> "ежедневно";
+            case WEEKLY -> weekdaysToString();
+            case MONTHLY -> value == 0 ? "ежемесячно" : "ежемесячно: " + value;
+            case EVERY_DAYS -> "каждые " + value + " дн.";
+        };
+    }
+
+    private String weekdaysToString() {
+        StringJoiner days = new StringJoiner(", ", "еженедельно: ", "");
+        for (DayOfWeek day : DayOfWeek.values())
+            if ((value & (1 << day.ordinal())) != 0) days.add(WEEKDAYS[day.ordinal()]);
+        return days.toString();
+    }
+}
@@ -2,23 +2,40 @@ package com.example.remindme7bot.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
+import java.sql.Timestamp;
 import java.time.LocalDate;
 
 @Entity(name = "todoDataTable")
+@Table(indexes = {
+        @Index(name = "idx_todo_deadline_important", columnList = "deadline, important"),
+        @Index(name = "idx_todo_user_seq_number", columnList = "user_chat_id, seqNumber"),
+        @Index(name = "idx_todo_user_deadline_id", columnList = "user_chat_id, deadline, id"),
+        @Index(name = "idx_todo_completed_at", columnList = "completedAt")
+})
 @Data
 public class Todo {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // идентификаторы выдаются блоками, поэтому Hibernate может объединять INSERT в пакеты
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "todo_seq")
+    @SequenceGenerator(name = "todo_seq", sequenceName = "todo_seq", allocationSize = 50)
     private Long id;
     private Integer seqNumber;
     private String title;
     private String description;
     private Boolean important = false;
     private LocalDate deadline;
+    // правило повторения (Recurrence); у повторяющейся задачи deadline - текущее повторение
+    private String recurrence;
+    // время выполнения; выполненные задачи переносятся в архив (ArchivedTodo) фоновой задачей
+    private Timestamp completedAt;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_chat_id")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private User user;
 
     public Todo() {
@@ -0,0 +1,14 @@
+package com.example.remindme7bot.model;
+
+import java.time.LocalDate;
+
+/**
+ * Строка списка задач (только поля, которые выводятся в списке)
+ */
+public record TodoListItem(Long id, Integer seqNumber, String title, Boolean important, LocalDate deadline,
+                           String recurrence) {
+
+    public TodoListItem withSeqNumber(Integer seqNumber) {
+        return new TodoListItem(id, seqNumber, title, important, deadline, recurrence);
+    }
+}
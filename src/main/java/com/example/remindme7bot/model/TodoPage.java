@@ -0,0 +1,17 @@
+package com.example.remindme7bot.model;
+
+import java.util.List;
+
+/**
+ * Страница списка задач. firstPosition - номер первой задачи страницы в общем списке
+ */
+public record TodoPage(List<TodoListItem> items, int firstPosition, boolean hasPrevious, boolean hasNext) {
+
+    public TodoListItem first() {
+        return items.get(0);
+    }
+
+    public TodoListItem last() {
+        return items.get(items.size() - 1);
+    }
+}
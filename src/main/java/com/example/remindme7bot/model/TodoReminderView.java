@@ -0,0 +1,16 @@
+package com.example.remindme7bot.model;
+
+import java.time.LocalDate;
+
+/**
+ * Облегчённое представление задачи для напоминаний (без загрузки сущностей Todo и User)
+ */
+public record TodoReminderView(Long chatId, String title, Boolean important, LocalDate deadline, String recurrence) {
+
+    /**
+     * Дедлайн с учётом повторения: у повторяющейся задачи с прошедшим дедлайном - ближайшее повторение
+     */
+    public LocalDate dueDate(LocalDate today) {
+        return Recurrence.dueDate(recurrence, deadline, today);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.remindme7bot.model;
+
+/**
+ * Поля задачи, по которым идёт поиск
+ */
+public record TodoSearchItem(Long id, String title, String description) {
+}
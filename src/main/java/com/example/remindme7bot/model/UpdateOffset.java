@@ -0,0 +1,23 @@
+package com.example.remindme7bot.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Data;
+
+/**
+ * Позиция обработки входящих обновлений (единственная строка): последний update_id, до которого
+ * обработано всё, и битовая маска обработанных обновлений после него
+ */
+@Entity(name = "updateOffsetDataTable")
+@Data
+public class UpdateOffset {
+
+    public static final int ID = 1;
+
+    @Id
+    private Integer id;
+    private Long lastUpdateId;
+    @Column(length = 512)
+    private byte[] processed;
+}
@@ -0,0 +1,40 @@
+package com.example.remindme7bot.repository;
+
+import com.example.remindme7bot.model.ArchivedTodo;
+import com.example.remindme7bot.model.DoneItem;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+
+public interface ArchivedTodoRepository extends CrudRepository<ArchivedTodo, Long> {
+
+    // Перенос выполненных задач одним INSERT ... SELECT
+    @Modifying
+    @Query("insert into todoArchiveDataTable (id, chatId, title, description, important, deadline, completedAt) " +
+            "select t.id, t.user.chatId, t.title, t.description, t.important, t.deadline, t.completedAt " +
+            "from todoDataTable t where t.id in :ids")
+    int copyFromTodos(Collection<Long> ids);
+
+    // История пользователя от новых к старым (индекс chatId, completedAt, id)
+    @Query("select new com.example.remindme7bot.model.DoneItem(a.id, a.title, a.completedAt) " +
+            "from todoArchiveDataTable a where a.chatId = :chatId " +
+            "order by a.completedAt desc, a.id desc")
+    List<DoneItem> findDoneFirst(Long chatId, Pageable page);
+
+    @Query("select new com.example.remindme7bot.model.DoneItem(a.id, a.title, a.completedAt) " +
+            "from todoArchiveDataTable a where a.chatId = :chatId " +
+            "and (a.completedAt < :completedAt or (a.completedAt = :completedAt and a.id < :id)) " +
+            "order by a.completedAt desc, a.id desc")
+    List<DoneItem> findDoneBefore(Long chatId, Timestamp completedAt, Long id, Pageable page);
+
+    @Query("select new com.example.remindme7bot.model.DoneItem(a.id, a.title, a.completedAt) " +
+            "from todoArchiveDataTable a where a.chatId = :chatId " +
+            "and (a.completedAt > :completedAt or (a.completedAt = :completedAt and a.id > :id)) " +
+            "order by a.completedAt, a.id")
+    List<DoneItem> findDoneAfter(Long chatId, Timestamp completedAt, Long id, Pageable page);
+}
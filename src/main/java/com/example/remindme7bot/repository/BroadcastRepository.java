@@ -0,0 +1,28 @@
+package com.example.remindme7bot.repository;
+
+import com.example.remindme7bot.model.Broadcast;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+public interface BroadcastRepository extends CrudRepository<Broadcast, Long> {
+
+    Optional<Broadcast> findFirstByStatusOrderByIdAsc(Broadcast.Status status);
+
+    /**
+     * Контрольная точка рассылки одним UPDATE
+     */
+    @Transactional
+    @Modifying
+    @Query("update broadcastsDataTable b set b.lastChatId = :lastChatId, b.sent = :sent, b.failed = :failed " +
+            "where b.id = :id")
+    void saveProgress(Long id, Long lastChatId, long sent, long failed);
+
+    @Transactional
+    @Modifying
+    @Query("update broadcastsDataTable b set b.progressMessageId = :messageId where b.id = :id")
+    void saveProgressMessageId(Long id, Integer messageId);
+}
@@ -0,0 +1,33 @@
+package com.example.remindme7bot.repository;
+
+import com.example.remindme7bot.model.ChatStateRecord;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+public interface ChatStateRepository extends CrudRepository<ChatStateRecord, Long> {
+
+    List<ChatStateRecord> findAllByUpdatedAtAfter(Timestamp after);
+
+    @Transactional
+    @Modifying
+    @Query("delete from chatStatesDataTable c where c.chatId = :chatId")
+    void deleteByChatId(Long chatId);
+
+    /**
+     * Удаление записи, если она не новее notAfter (более новую записал параллельный put)
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from chatStatesDataTable c where c.chatId = :chatId and c.updatedAt <= :notAfter")
+    void deleteNotAfter(Long chatId, Timestamp notAfter);
+
+    @Transactional
+    @Modifying
+    @Query("delete from chatStatesDataTable c where c.updatedAt < :before")
+    int deleteExpired(Timestamp before);
+}
@@ -1,11 +1,133 @@
 package com.example.remindme7bot.repository;
 
+import com.example.remindme7bot.model.DoneItem;
 import com.example.remindme7bot.model.Todo;
+import com.example.remindme7bot.model.TodoListItem;
+import com.example.remindme7bot.model.TodoReminderView;
+import com.example.remindme7bot.model.TodoSearchItem;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface TodoRepository extends CrudRepository<Todo, Long> {
-    List<Todo> findAllByUser_ChatId(Long chatId);
-    List<Todo> findAllByDeadlineIsNotNull();
+    // Поля для построения поискового индекса пользователя
+    @Query("select new com.example.remindme7bot.model.TodoSearchItem(t.id, t.title, t.description) " +
+            "from todoDataTable t where t.user.chatId = :chatId and t.completedAt is null")
+    List<TodoSearchItem> findSearchItems(Long chatId);
+
+    // Страницы списка (индекс user_chat_id, deadline, id). Порядок списка: сначала задачи с дедлайном
+    // по (deadline, id), затем без дедлайна по id; страница продолжается от последней показанной задачи
+    @Query("select new com.example.remindme7bot.model.TodoListItem(t.id, t.seqNumber, t.title, t.important, t.deadline, t.recurrence) " +
+            "from todoDataTable t where t.user.chatId = :chatId and t.completedAt is null and t.deadline is not null " +
+            "order by t.deadline, t.id")
+    List<TodoListItem> findDatedFirst(Long chatId, Pageable page);
+
+    @Query("select new com.example.remindme7bot.model.TodoListItem(t.id, t.seqNumber, t.title, t.important, t.deadline, t.recurrence) " +
+            "from todoDataTable t where t.user.chatId = :chatId and t.completedAt is null " +
+            "and (t.deadline > :deadline or (t.deadline = :deadline and t.id > :id)) " +
+            "order by t.deadline, t.id")
+    List<TodoListItem> findDatedAfter(Long chatId, LocalDate deadline, Long id, Pageable page);
+
+    @Query("select new com.example.remindme7bot.model.TodoListItem(t.id, t.seqNumber, t.title, t.important, t.deadline, t.recurrence) " +
+            "from todoDataTable t where t.user.chatId = :chatId and t.completedAt is null and t.deadline is null and t.id > :id " +
+            "order by t.id")
+    List<TodoListItem> findUndatedAfter(Long chatId, Long id, Pageable page);
+
+    // то же в обратном порядке - для перехода на предыдущую страницу
+    @Query("select new com.example.remindme7bot.model.TodoListItem(t.id, t.seqNumber, t.title, t.important, t.deadline, t.recurrence) " +
+            "from todoDataTable t where t.user.chatId = :chatId and t.completedAt is null and t.deadline is not null " +
+            "order by t.deadline desc, t.id desc")
+    List<TodoListItem> findDatedLast(Long chatId, Pageable page);
+
+    @Query("select new com.example.remindme7bot.model.TodoListItem(t.id, t.seqNumber, t.title, t.important, t.deadline, t.recurrence) " +
+            "from todoDataTable t where t.user.chatId = :chatId and t.completedAt is null " +
+            "and (t.deadline < :deadline or (t.deadline = :deadline and t.id < :id)) " +
+            "order by t.deadline desc, t.id desc")
+    List<TodoListItem> findDatedBefore(Long chatId, LocalDate deadline, Long id, Pageable page);
+
+    @Query("select new com.example.remindme7bot.model.TodoListItem(t.id, t.seqNumber, t.title, t.important, t.deadline, t.recurrence) " +
+            "from todoDataTable t where t.user.chatId = :chatId and t.completedAt is null and t.deadline is null and t.id < :id " +
+            "order by t.id desc")
+    List<TodoListItem> findUndatedBefore(Long chatId, Long id, Pageable page);
+
+    // Снятие номеров [from, to] с задач, которых нет на показанной странице, чтобы номер задачи был однозначным
+    @Modifying
+    @Query("update todoDataTable t set t.seqNumber = null " +
+            "where t.user.chatId = :chatId and t.seqNumber between :from and :to and t.id not in :pageIds")
+    int clearSeqNumbers(Long chatId, Integer from, Integer to, Collection<Long> pageIds);
+
+    // Поиск задачи по номеру в списке пользователя (индекс user_chat_id, seqNumber)
+    Optional<Todo> findByUser_ChatIdAndSeqNumber(Long chatId, Integer seqNumber);
+
+    // Невыполненная задача по id, только если она принадлежит пользователю (id приходит в данных inline-кнопки)
+    @Query("select t from todoDataTable t where t.id = :id and t.user.chatId = :chatId and t.completedAt is null")
+    Optional<Todo> findByIdAndUser_ChatId(Long id, Long chatId);
+
+    // Выполненные задачи пользователя, ещё не перенесённые в архив (для истории вместе с архивом)
+    @Query("select new com.example.remindme7bot.model.DoneItem(t.id, t.title, t.completedAt) " +
+            "from todoDataTable t where t.user.chatId = :chatId and t.completedAt is not null " +
+            "order by t.completedAt desc, t.id desc")
+    List<DoneItem> findDoneFirst(Long chatId, Pageable page);
+
+    @Query("select new com.example.remindme7bot.model.DoneItem(t.id, t.title, t.completedAt) " +
+            "from todoDataTable t where t.user.chatId = :chatId and t.completedAt is not null " +
+            "and (t.completedAt < :completedAt or (t.completedAt = :completedAt and t.id < :id)) " +
+            "order by t.completedAt desc, t.id desc")
+    List<DoneItem> findDoneBefore(Long chatId, Timestamp completedAt, Long id, Pageable page);
+
+    // Более новые выполненные задачи, от старых к новым (для перехода к предыдущей странице истории)
+    @Query("select new com.example.remindme7bot.model.DoneItem(t.id, t.title, t.completedAt) " +
+            "from todoDataTable t where t.user.chatId = :chatId and t.completedAt is not null " +
+            "and (t.completedAt > :completedAt or (t.completedAt = :completedAt and t.id > :id)) " +
+            "order by t.completedAt, t.id")
+    List<DoneItem> findDoneAfter(Long chatId, Timestamp completedAt, Long id, Pageable page);
+
+    // Очередная пачка выполненных задач для переноса в архив (индекс completedAt)
+    @Query("select t.id from todoDataTable t where t.completedAt is not null order by t.completedAt")
+    List<Long> findCompletedIds(Pageable page);
+
+    @Modifying
+    @Query("delete from todoDataTable t where t.id in :ids")
+    int deleteAllByIds(Collection<Long> ids);
+
+    // Повторяющиеся задачи пользователя, дедлайн которых прошёл (их нужно перенести на текущее повторение)
+    @Query("select t from todoDataTable t " +
+            "where t.user.chatId = :chatId and t.deadline < :today and t.recurrence is not null")
+    List<Todo> findOverdueRecurring(Long chatId, LocalDate today);
+
+    // Пачка повторяющихся задач всех пользователей с прошедшим дедлайном (для ночного переноса)
+    @Query("select t from todoDataTable t " +
+            "where t.deadline < :today and t.recurrence is not null and t.completedAt is null order by t.id")
+    List<Todo> findOverdueRecurring(LocalDate today, Pageable page);
+
+    // Задачи на завтра и важные задачи на послезавтра (индекс deadline, important), читаются потоком,
+    // сгруппированными по пользователю для сводки напоминаний. Дедлайны повторяющихся задач к этому времени
+    // уже перенесены на текущее повторение (RecurrenceCatchUp), поэтому прошедшие даты не читаются
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select new com.example.remindme7bot.model.TodoReminderView(t.user.chatId, t.title, t.important, t.deadline, t.recurrence) " +
+            "from todoDataTable t " +
+            "where (t.deadline = :tomorrow or (t.important = true and t.deadline = :inTwoDays)) " +
+            "and t.completedAt is null " +
+            "order by t.user.chatId, t.deadline, t.id")
+    Stream<TodoReminderView> streamDueReminders(LocalDate tomorrow, LocalDate inTwoDays);
+
+    // Задачи пользователей с собственным расписанием уведомлений в окне дедлайнов [from, to], по пользователям
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select new com.example.remindme7bot.model.TodoReminderView(t.user.chatId, t.title, t.important, t.deadline, t.recurrence) " +
+            "from todoDataTable t " +
+            "where t.user.chatId in :chatIds and t.completedAt is null " +
+            "and t.deadline between :from and :to " +
+            "order by t.user.chatId, t.deadline, t.id")
+    Stream<TodoReminderView> streamRemindersForUsers(Collection<Long> chatIds, LocalDate from, LocalDate to);
 }
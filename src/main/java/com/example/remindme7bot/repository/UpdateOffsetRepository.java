@@ -0,0 +1,7 @@
+package com.example.remindme7bot.repository;
+
+import com.example.remindme7bot.model.UpdateOffset;
+import org.springframework.data.repository.CrudRepository;
+
+public interface UpdateOffsetRepository extends CrudRepository<UpdateOffset, Integer> {
+}
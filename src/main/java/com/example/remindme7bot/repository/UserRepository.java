@@ -1,7 +1,22 @@
 package com.example.remindme7bot.repository;
 
+import com.example.remindme7bot.model.NotifyPreference;
 import com.example.remindme7bot.model.User;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.JpaRepository;
 
-public interface UserRepository extends CrudRepository<User, Long> {
+import java.util.List;
+
+public interface UserRepository extends JpaRepository<User, Long> {
+
+    @Query("select new com.example.remindme7bot.model.NotifyPreference(u.chatId, u.editNotify) " +
+            "from usersDataTable u where u.editNotify is not null")
+    List<NotifyPreference> findAllNotifyPreferences();
+
+    /**
+     * Страница chatId по возрастанию (keyset: после последнего chatId предыдущей страницы)
+     */
+    @Query("select u.chatId from usersDataTable u where u.chatId > :after order by u.chatId")
+    List<Long> findChatIdsAfter(Long after, Pageable pageable);
 }
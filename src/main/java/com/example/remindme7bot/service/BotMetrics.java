@@ -0,0 +1,125 @@
+package com.example.remindme7bot.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Метрики бота: время обработки команд, время и исход запросов к Telegram,
+ * ошибки по типам и количество отправленных напоминаний.
+ * Обращения к репозиториям измеряет сам Spring (spring.data.repository.invocations)
+ */
+@Component
+public class BotMetrics {
+
+    private final MeterRegistry registry;
+
+    public BotMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public Timer.Sample startTimer() {
+        return Timer.start(registry);
+    }
+
+    /**
+     * Время обработки одного обновления с разбивкой по команде (ветке обработчика)
+     */
+    public void recordCommand(Timer.Sample sample, String command, Throwable error) {
+        sample.stop(Timer.builder("bot.commands")
+                .description("Обработка входящих сообщений")
+                .tag("command", command)
+                .tag("outcome", error == null ? "success" : "error")
+                .publishPercentileHistogram()
+                .register(registry));
+        if (error != null) recordError("command", error);
+    }
+
+    /**
+     * Время запроса к Telegram Bot API. outcome: success, too_many_requests, client_error, server_error
+     */
+    public void recordTelegramCall(Timer.Sample sample, String method, String outcome) {
+        sample.stop(Timer.builder("bot.telegram.requests")
+                .description("Запросы к Telegram Bot API")
+                .tag("method", method)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry));
+    }
+
+    public void recordError(String source, Throwable error) {
+        Counter.builder("bot.errors")
+                .description("Ошибки по источнику и типу")
+                .tag("source", source)
+                .tag("type", error.getClass().getSimpleName())
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Количество напоминаний, поставленных в очередь одной рассылкой
+     */
+    public void recordReminders(String job, long count) {
+        Counter.builder("bot.reminders.sent")
+                .description("Отправленные напоминания")
+                .tag("job", job)
+                .register(registry)
+                .increment(count);
+    }
+
+    public void recordArchived(long count) {
+        Counter.builder("bot.todos.archived")
+                .description("Выполненные задачи, перенесённые в архив")
+                .register(registry)
+                .increment(count);
+    }
+
+    /**
+     * Повторно доставленные обновления, отброшенные без обработки
+     */
+    public void recordDuplicateUpdate() {
+        Counter.builder("bot.updates.duplicates")
+                .description("Повторно доставленные обновления")
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Обновления, отброшенные лимитом чата
+     */
+    public void recordThrottledUpdate(String command) {
+        Counter.builder("bot.updates.throttled")
+                .description("Обновления сверх лимита чата")
+                .tag("command", command)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Обновления, отброшенные из-за перегрузки очереди обработки
+     */
+    public void recordShedUpdate(String command) {
+        Counter.builder("bot.updates.shed")
+                .description("Обновления, отброшенные при перегрузке")
+                .tag("command", command)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Сообщения рассылки: outcome success - доставлено, error - ошибка (например, бот заблокирован)
+     */
+    public void recordBroadcast(long sent, long failed) {
+        Counter.builder("bot.broadcast.messages")
+                .description("Сообщения рассылки")
+                .tag("outcome", "success")
+                .register(registry)
+                .increment(sent);
+        Counter.builder("bot.broadcast.messages")
+                .description("Сообщения рассылки")
+                .tag("outcome", "error")
+                .register(registry)
+                .increment(failed);
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.remindme7bot.service;
+
+import com.example.remindme7bot.config.BotConfig;
+import com.example.remindme7bot.model.Broadcast;
+import com.example.remindme7bot.repository.BroadcastRepository;
+import com.example.remindme7bot.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Рассылка сообщения всем пользователям. chatId читаются страницами по возрастанию (keyset),
+ * сообщения уходят через OutboundMessageQueue с приоритетом BULK, то есть с глобальным лимитом Telegram
+ * и не мешая ответам пользователям. Следующая страница читается, когда отправлена предыдущая.
+ * Перед отправкой страницы её последний chatId записывается в БД как контрольная точка:
+ * после перезапуска рассылка продолжается со следующего пользователя и никому не приходит дважды
+ * (при аварийной остановке часть последней страницы может остаться неотправленной)
+ */
+@Slf4j
+@Component
+public class Broadcaster {
+
+    @Autowired
+    private BroadcastRepository broadcastRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private OutboundMessageQueue outboundQueue;
+    @Autowired
+    private BotMetrics botMetrics;
+
+    private final int pageSize;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("broadcast-"));
+    // рассылка, которая сейчас идёт (null - нет)
+    private volatile Broadcast current;
+    private volatile boolean cancelled;
+    private volatile boolean stopping;
+
+    public Broadcaster(BotConfig config) {
+        this.pageSize = config.getBroadcastPageSize();
+    }
+
+    /**
+     * Продолжение рассылки, прерванной остановкой бота
+     */
+    @EventListener({ContextRefreshedEvent.class})
+    public synchronized void resume() {
+        if (current != null) return;
+        broadcastRepository.findFirstByStatusOrderByIdAsc(Broadcast.Status.RUNNING).ifPresent(broadcast -> {
+            log.info("Broadcast " + broadcast.getId() + " resumed after chat " + broadcast.getLastChatId());
+            launch(broadcast);
+        });
+    }
+
+    /**
+     * Запуск новой рассылки. false - уже идёт другая
+     */
+    public synchronized boolean start(long adminChatId, String text) {
+        if (current != null) return false;
+        Broadcast broadcast = new Broadcast();
+        broadcast.setText(text);
+        broadcast.setStatus(Broadcast.Status.RUNNING);
+        broadcast.setAdminChatId(adminChatId);
+        broadcast.setTotal(userRepository.count());
+        broadcast.setCreatedAt(new Timestamp(System.currentTimeMillis()));
+        launch(broadcastRepository.save(broadcast));
+        log.info("Broadcast " + broadcast.getId() + " started by " + adminChatId + " for " + broadcast.getTotal() + " users");
+        return true;
+    }
+
+    /**
+     * Остановка текущей рассылки после отправки начатой страницы. false - рассылка не идёт
+     */
+    public boolean cancel() {
+        if (current == null) return false;
+        cancelled = true;
+        return true;
+    }
+
+    private void launch(Broadcast broadcast) {
+        current = broadcast;
+        cancelled = false;
+        worker.execute(() -> {
+            try {
+                run(broadcast);
+            } catch (RuntimeException e) {
+                log.error("Error occurred in broadcast " + broadcast.getId() + ": " + e.getMessage(), e);
+                botMetrics.recordError("broadcast", e);
+            } finally {
+                current = null;
+            }
+        });
+    }
+
+    private void run(Broadcast broadcast) {
+        // сообщение о ходе рассылки ждёт ответа Telegram в потоке рассылки, а не в обработчике команды
+        if (broadcast.getProgressMessageId() == null) sendProgress(broadcast);
+        long after = broadcast.getLastChatId() == null ? Long.MIN_VALUE : broadcast.getLastChatId();
+        while (!stopping && !cancelled) {
+            List<Long> chatIds = userRepository.findChatIdsAfter(after, PageRequest.of(0, pageSize));
+            if (chatIds.isEmpty()) break;
+            after = chatIds.get(chatIds.size() - 1);
+            // страница считается взятой в работу до отправки: повторно её никто не получит
+            broadcastRepository.saveProgress(broadcast.getId(), after, broadcast.getSent(), broadcast.getFailed());
+            broadcast.setLastChatId(after);
+            sendPage(broadcast, chatIds);
+            broadcastRepository.saveProgress(broadcast.getId(), after, broadcast.getSent(), broadcast.getFailed());
+            reportProgress(broadcast);
+        }
+        // при остановке бота рассылка остаётся RUNNING и продолжится после запуска
+        if (stopping && !cancelled) return;
+        broadcast.setStatus(cancelled ? Broadcast.Status.CANCELLED : Broadcast.Status.FINISHED);
+        broadcast.setFinishedAt(new Timestamp(System.currentTimeMillis()));
+        broadcastRepository.save(broadcast);
+        reportProgress(broadcast);
+        log.info("Broadcast " + broadcast.getId() + " " + broadcast.getStatus() + ": sent " + broadcast.getSent()
+                + ", failed " + broadcast.getFailed());
+    }
+
+    private void sendPage(Broadcast broadcast, List<Long> chatIds) {
+        AtomicLong sent = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[chatIds.size()];
+        for (int i = 0; i < futures.length; i++) {
+            long chatId = chatIds.get(i);
+            futures[i] = outboundQueue.submit(chatId, new SendMessage(String.valueOf(chatId), broadcast.getText()),
+                            OutboundMessageQueue.Priority.BULK)
+                    .whenComplete((message, error) -> (error == null ? sent : failed).incrementAndGet());
+        }
+        // ошибки (например, бот заблокирован пользователем) учтены в failed
+        join(CompletableFuture.allOf(futures).exceptionally(error -> null));
+        broadcast.setSent(broadcast.getSent() + sent.get());
+        broadcast.setFailed(broadcast.getFailed() + failed.get());
+        botMetrics.recordBroadcast(sent.get(), failed.get());
+    }
+
+    private void sendProgress(Broadcast broadcast) {
+        SendMessage progress = new SendMessage(String.valueOf(broadcast.getAdminChatId()), progressText(broadcast));
+        join(outboundQueue.submit(broadcast.getAdminChatId(), progress, OutboundMessageQueue.Priority.INTERACTIVE))
+                .ifPresent(message -> {
+                    broadcast.setProgressMessageId(message.getMessageId());
+                    broadcastRepository.saveProgressMessageId(broadcast.getId(), message.getMessageId());
+                });
+    }
+
+    /**
+     * Ход рассылки в сообщении администратора (изменяется на месте, без новых сообщений)
+     */
+    private void reportProgress(Broadcast broadcast) {
+        if (broadcast.getProgressMessageId() == null) return;
+        EditMessageText edit = new EditMessageText(progressText(broadcast));
+        edit.setChatId(broadcast.getAdminChatId());
+        edit.setMessageId(broadcast.getProgressMessageId());
+        outboundQueue.submit(broadcast.getAdminChatId(), edit, OutboundMessageQueue.Priority.INTERACTIVE);
+    }
+
+    private static String progressText(Broadcast broadcast) {
+        MessageTemplate template = switch (broadcast.getStatus()) {
+            case RUNNING -> MessageTemplates.BROADCAST_PROGRESS;
+            case FINISHED -> MessageTemplates.BROADCAST_FINISHED;
+            case CANCELLED -> MessageTemplates.BROADCAST_CANCELLED;
+        };
+        return template.render(broadcast.getSent() + broadcast.getFailed(), broadcast.getTotal(),
+                broadcast.getSent(), broadcast.getFailed());
+    }
+
+    private static <T> Optional<T> join(CompletableFuture<T> future) {
+        try {
+            return Optional.ofNullable(future.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.warn("Broadcast request failed: " + e.getCause().getMessage());
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Остановка до OutboundMessageQueue (он нужен для отправки начатой страницы).
+     * Рассылка записывает точное место остановки и продолжится после запуска
+     */
+    @PreDestroy
+    public void shutdown() {
+        stopping = true;
+        worker.shutdown();
+        try {
+            if (!worker.awaitTermination(30, TimeUnit.SECONDS)) worker.shutdownNow();
+        } catch (InterruptedException e) {
+            worker.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.remindme7bot.service;
+
+import com.example.remindme7bot.config.BotConfig;
+import com.example.remindme7bot.model.ChatStage;
+import com.example.remindme7bot.model.ChatState;
+import com.example.remindme7bot.model.ChatStateRecord;
+import com.example.remindme7bot.repository.ChatStateRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Хранилище состояний диалогов: ограниченное по размеру, с удалением брошенных (давно не изменявшихся) диалогов.
+ * Все изменения сразу записываются в БД, чтобы начатые действия пережили перезапуск бота.
+ * После загрузки при старте память считается главной копией, поэтому чтение в БД не ходит:
+ * запись в БД есть только у чатов, состояние которых есть в памяти.
+ * Общей блокировки нет: изменения одного чата приходят из одного потока UpdateDispatcher,
+ * поэтому запросы к БД разных чатов идут параллельно и не задерживают чтение
+ */
+@Slf4j
+@Component
+public class ChatStateStore {
+
+    @Autowired
+    private ChatStateRepository chatStateRepository;
+
+    private final long idleTtlMillis;
+    private final int maxSize;
+    private final ConcurrentHashMap<Long, Entry> states = new ConcurrentHashMap<>(256);
+    // вытеснение при переполнении выполняет один поток, остальные не ждут
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    public ChatStateStore(BotConfig config) {
+        this.idleTtlMillis = TimeUnit.MINUTES.toMillis(config.getChatStateIdleTtlMinutes());
+        this.maxSize = config.getChatStateMaxSize();
+    }
+
+    /**
+     * Восстановление незавершённых диалогов после перезапуска. Записи, которые не загружаются
+     * (устаревшие или с неизвестным этапом), удаляются: иначе put новой записи того же чата не прошёл бы
+     */
+    @PostConstruct
+    public void load() {
+        Timestamp before = new Timestamp(System.currentTimeMillis() - idleTtlMillis);
+        chatStateRepository.deleteExpired(before);
+        for (ChatStateRecord record : chatStateRepository.findAllByUpdatedAtAfter(before)) {
+            ChatStage stage = ChatStage.fromCode(record.getStage());
+            if (stage == null) {
+                chatStateRepository.deleteByChatId(record.getChatId());
+                continue;
+            }
+            ChatState state = new ChatState(stage, record.getTaskId());
+            state.setTitle(record.getTitle());
+            state.setMessageId(record.getMessageId());
+            long updatedAt = record.getUpdatedAt().getTime();
+            states.put(record.getChatId(), new Entry(state, updatedAt, updatedAt));
+        }
+        log.info("Chat states restored: " + states.size());
+    }
+
+    public ChatState get(Long chatId) {
+        Entry entry = states.get(chatId);
+        if (entry == null) return null;
+        long now = System.currentTimeMillis();
+        // срок считается от записи в БД, как и в removeExpired: память и БД забывают диалог одновременно
+        if (now - entry.savedAt > idleTtlMillis) {
+            if (states.remove(chatId, entry)) chatStateRepository.deleteByChatId(chatId);
+            return null;
+        }
+        entry.lastAccess = now;
+        return entry.state;
+    }
+
+    /**
+     * Сохранение состояния (в том числе после изменения уже полученного через get)
+     */
+    public void put(Long chatId, ChatState state) {
+        long now = System.currentTimeMillis();
+        Entry previous = states.put(chatId, new Entry(state, now, now));
+
+        ChatStateRecord record = new ChatStateRecord();
+        record.setChatId(chatId);
+        record.setStage(state.getStage().getCode());
+        record.setTaskId(state.getTaskId());
+        record.setTitle(state.getTitle());
+        record.setMessageId(state.getMessageId());
+        record.setUpdatedAt(new Timestamp(now));
+        // записи нет без состояния в памяти, поэтому новое состояние - один INSERT без SELECT
+        record.setNewRecord(previous == null);
+        chatStateRepository.save(record);
+
+        if (states.size() > maxSize) evictOverflow();
+    }
+
+    public void remove(Long chatId) {
+        if (states.remove(chatId) != null) chatStateRepository.deleteByChatId(chatId);
+    }
+
+    public int size() {
+        return states.size();
+    }
+
+    /**
+     * При переполнении выбрасываем самые давно использованные состояния - сразу десятую часть,
+     * чтобы сортировка по времени доступа выполнялась редко
+     */
+    private void evictOverflow() {
+        if (!evictionLock.tryLock()) return;
+        try {
+            int excess = states.size() - maxSize;
+            if (excess <= 0) return;
+            List<Map.Entry<Long, Entry>> oldest = new ArrayList<>(states.entrySet());
+            oldest.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+            int count = Math.min(oldest.size(), excess + maxSize / 10);
+            for (Map.Entry<Long, Entry> e : oldest.subList(0, count)) evict(e.getKey(), e.getValue());
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Сначала БД (только запись не новее вытесняемой), затем память (только если состояние не заменили):
+     * одновременный put того же чата не теряет новое состояние
+     */
+    private void evict(Long chatId, Entry entry) {
+        chatStateRepository.deleteNotAfter(chatId, new Timestamp(entry.savedAt));
+        states.remove(chatId, entry);
+    }
+
+    /**
+     * Удаление брошенных диалогов из памяти и из БД - по одному и тому же времени записи (updatedAt)
+     */
+    @Scheduled(fixedDelay = 10, timeUnit = TimeUnit.MINUTES)
+    public void removeExpired() {
+        long before = System.currentTimeMillis() - idleTtlMillis;
+        int expired = 0;
+        for (Map.Entry<Long, Entry> entry : states.entrySet()) {
+            if (entry.getValue().savedAt < before && states.remove(entry.getKey(), entry.getValue())) expired++;
+        }
+        int deleted = chatStateRepository.deleteExpired(new Timestamp(before));
+        if (expired > 0 || deleted > 0)
+            log.info("Expired chat states removed: " + expired + " in memory, " + deleted + " in DB");
+    }
+
+    private static class Entry {
+        final ChatState state;
+        // когда состояние записано в БД (updatedAt записи); от него считается срок хранения
+        final long savedAt;
+        // только для выбора вытесняемых при переполнении
+        volatile long lastAccess;
+
+        Entry(ChatState state, long savedAt, long lastAccess) {
+            this.state = state;
+            this.savedAt = savedAt;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
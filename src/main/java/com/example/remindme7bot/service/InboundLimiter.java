@@ -0,0 +1,99 @@
+package com.example.remindme7bot.service;
+
+import com.example.remindme7bot.config.BotConfig;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ограничение входящих обновлений: token bucket на каждый чат (дорогие команды забирают больше токенов)
+ * и отбрасывание дорогих обновлений, пока очередь UpdateDispatcher длиннее bot.inbound.shed-queue-depth.
+ * Вызывается из потока приёма обновлений, до постановки в очередь
+ */
+@Component
+public class InboundLimiter {
+
+    public enum Decision {
+        ADMITTED,
+        // чат исчерпал свой лимит
+        THROTTLED,
+        // бот перегружен, дорогие запросы не принимаются
+        SHED
+    }
+
+    private final UpdateDispatcher updateDispatcher;
+    private final BotMetrics botMetrics;
+    private final double chatRate;
+    private final double chatBurst;
+    private final Map<String, Integer> costs;
+    private final int shedQueueDepth;
+    private final ConcurrentHashMap<Long, ChatLimit> chats = new ConcurrentHashMap<>();
+
+    public InboundLimiter(BotConfig config, UpdateDispatcher updateDispatcher, BotMetrics botMetrics) {
+        this.updateDispatcher = updateDispatcher;
+        this.botMetrics = botMetrics;
+        this.chatRate = config.getInboundChatRate();
+        this.chatBurst = config.getInboundChatBurst();
+        this.costs = Map.copyOf(config.getInboundCosts());
+        this.shedQueueDepth = config.getInboundShedQueueDepth();
+    }
+
+    /**
+     * Решение по одному обновлению. command - название обработчика (как в метриках bot.commands)
+     */
+    public Decision admit(long chatId, String command) {
+        int cost = costOf(command);
+        if (cost > 1 && isOverloaded()) {
+            botMetrics.recordShedUpdate(command);
+            return Decision.SHED;
+        }
+        ChatLimit limit = chats.computeIfAbsent(chatId, id -> new ChatLimit(new TokenBucket(chatRate, chatBurst)));
+        // команда дороже ёмкости ведра иначе не прошла бы никогда
+        if (!limit.bucket.tryAcquire(Math.min(cost, chatBurst))) {
+            botMetrics.recordThrottledUpdate(command);
+            return Decision.THROTTLED;
+        }
+        limit.warned = false;
+        return Decision.ADMITTED;
+    }
+
+    /**
+     * Нужно ли сообщить чату об отказе: один раз, пока его запросы снова не начнут проходить
+     */
+    public boolean warn(long chatId) {
+        ChatLimit limit = chats.computeIfAbsent(chatId, id -> new ChatLimit(new TokenBucket(chatRate, chatBurst)));
+        if (limit.warned) return false;
+        limit.warned = true;
+        return true;
+    }
+
+    /**
+     * Очередь обработки длиннее порога: фоновые задачи откладываются, дорогие запросы отбрасываются
+     */
+    public boolean isOverloaded() {
+        return updateDispatcher.getQueueDepth() > shedQueueDepth;
+    }
+
+    int costOf(String command) {
+        return costs.getOrDefault(command, 1);
+    }
+
+    /**
+     * Полное ведро ничем не отличается от нового, поэтому его можно удалить
+     */
+    @Scheduled(fixedRate = 60_000)
+    public void evictIdle() {
+        chats.values().removeIf(limit -> limit.bucket.isFull());
+    }
+
+    private static class ChatLimit {
+        final TokenBucket bucket;
+        volatile boolean warned;
+
+        ChatLimit(TokenBucket bucket) {
+            this.bucket = bucket;
+        }
+    }
+}
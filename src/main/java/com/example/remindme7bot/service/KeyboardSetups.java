@@ -1,66 +1,48 @@
 package com.example.remindme7bot.service;
 
+import com.example.remindme7bot.model.ChatStage;
 import org.springframework.stereotype.Component;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.ReplyKeyboardMarkup;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.KeyboardRow;
 
-import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Клавиатуры создаются один раз и переиспользуются во всех сообщениях (после создания не изменяются)
+ */
 @Component
 public class KeyboardSetups {
 
-    public void setDefaultKeyboard(SendMessage message) {
-        ReplyKeyboardMarkup keyboardMarkup = new ReplyKeyboardMarkup();
-        List<KeyboardRow> keyboardRows = new ArrayList<>();
-
-        KeyboardRow row = new KeyboardRow();
-        row.add("Лист");
-        keyboardRows.add(row);
-
-        row = new KeyboardRow();
-        row.add("Новая задача");
-        keyboardRows.add(row);
-
-        /*row = new KeyboardRow();
-        row.add("Уведомления");
-        keyboardRows.add(row);*/
-
-        keyboardMarkup.setKeyboard(keyboardRows);
-        message.setReplyMarkup(keyboardMarkup);
+    private static final ReplyKeyboardMarkup DEFAULT_KEYBOARD = keyboard(
+            row("Лист"),
+            row("Новая задача")
+            /*row("Уведомления")*/
+    );
+
+    private static final ReplyKeyboardMarkup CANCEL_KEYBOARD = keyboard(
+            row("-", "Отменить")
+    );
+
+    /**
+     * Клавиатура, соответствующая этапу диалога
+     */
+    public void setKeyboard(SendMessage message, ChatStage.Keyboard keyboard) {
+        message.setReplyMarkup(switch (keyboard) {
+            case DEFAULT -> DEFAULT_KEYBOARD;
+            case CANCEL -> CANCEL_KEYBOARD;
+        });
     }
 
-    public void setEditTaskKeyboard(SendMessage message) {
+    private static ReplyKeyboardMarkup keyboard(KeyboardRow... rows) {
         ReplyKeyboardMarkup keyboardMarkup = new ReplyKeyboardMarkup();
-        List<KeyboardRow> keyboardRows = new ArrayList<>();
-
-        KeyboardRow row = new KeyboardRow();
-        row.add("Название");
-        row.add("Описание");
-        row.add("Дедлайн");
-        keyboardRows.add(row);
-
-        row = new KeyboardRow();
-        row.add("Отметить важным");
-        row.add("Выполнить");
-        row.add("Назад");
-        keyboardRows.add(row);
-
-        keyboardMarkup.setKeyboard(keyboardRows);
-        message.setReplyMarkup(keyboardMarkup);
+        keyboardMarkup.setKeyboard(List.of(rows));
+        return keyboardMarkup;
     }
 
-    public void setCancelKeyboard(SendMessage message) {
-        ReplyKeyboardMarkup keyboardMarkup = new ReplyKeyboardMarkup();
-        List<KeyboardRow> keyboardRows = new ArrayList<>();
-
+    private static KeyboardRow row(String... buttons) {
         KeyboardRow row = new KeyboardRow();
-        row.add("-");
-        row.add("Отменить");
-        keyboardRows.add(row);
-
-        keyboardMarkup.setKeyboard(keyboardRows);
-        message.setReplyMarkup(keyboardMarkup);
+        for (String button : buttons) row.add(button);
+        return row;
     }
 }
@@ -0,0 +1,61 @@
+package com.example.remindme7bot.service;
+
+import com.vdurmont.emoji.EmojiParser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Заранее подготовленный шаблон сообщения: эмодзи (:alias:) преобразуются один раз при создании,
+ * а подстановка значений на место {} - это просто дописывание в StringBuilder
+ */
+public final class MessageTemplate {
+
+    private static final String PLACEHOLDER = "{}";
+
+    private final String[] parts;
+    private final int length;
+
+    private MessageTemplate(String[] parts) {
+        this.parts = parts;
+        int length = 0;
+        for (String part : parts) length += part.length();
+        this.length = length;
+    }
+
+    public static MessageTemplate of(String pattern) {
+        String text = EmojiParser.parseToUnicode(pattern);
+        List<String> parts = new ArrayList<>();
+        int from = 0;
+        int index;
+        while ((index = text.indexOf(PLACEHOLDER, from)) >= 0) {
+            parts.add(text.substring(from, index));
+            from = index + PLACEHOLDER.length();
+        }
+        parts.add(text.substring(from));
+        return new MessageTemplate(parts.toArray(new String[0]));
+    }
+
+    /**
+     * Текст шаблона без подстановок
+     */
+    public String text() {
+        return parts.length == 1 ? parts[0] : render();
+    }
+
+    public String render(Object... args) {
+        return appendTo(new StringBuilder(length + 16 * args.length), args).toString();
+    }
+
+    /**
+     * Дописать шаблон с подставленными значениями в уже созданный StringBuilder
+     */
+    public StringBuilder appendTo(StringBuilder builder, Object... args) {
+        builder.append(parts[0]);
+        for (int i = 1; i < parts.length; i++) {
+            if (i - 1 < args.length) builder.append(args[i - 1]);
+            builder.append(parts[i]);
+        }
+        return builder;
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.remindme7bot.service;
+
+/**
+ * Тексты сообщений бота. Подготавливаются один раз при загрузке класса
+ */
+public final class MessageTemplates {
+
+    public static final MessageTemplate HELP = MessageTemplate.of("Список команд:\n" +
+            "Команда /start - приветственное сообщение\n" +
+            "Команда /new - создать новую задачу\n" +
+            "Команда /todo - посмотреть список задач\n" +
+            "Команда /find - найти задачи по словам, например /find молоко\n" +
+            "Команда /done - выполненные задачи\n" +
+            "Команда /notify - настроить уведомления\n" +
+            "Чтобы редактировать задачу достаточно просто ввести " +
+            "её номер в списке. Например /2 (Можно без \"/\")");
+
+    public static final MessageTemplate GREETING = MessageTemplate.of(
+            "Привет, {}! Я RemindMe7 :zap:\n" +
+                    "Я помогу тебе вести свой TODO-лист задач.\n\n" +
+                    "Ты будешь создавать задачи :pushpin:, а я буду:\n" +
+                    " - следить за их дедлайнами\n" +
+                    " - структурировать их по времени\n" +
+                    " - напоминать о важных :exclamation:\n");
+
+    public static final MessageTemplate FIRST_TASK_HINT = MessageTemplate.of(
+            "Давай создадим твою первую задачу, " +
+                    "для этого нажми кнопку «Создать» на клавиатуре " +
+                    "или просто введи команду /new.");
+
+    // список задач
+    public static final String LIST_HEADER = MessageTemplate.of("Список задач :zap::\n").text();
+    public static final String IMPORTANT_MARK = MessageTemplate.of(":exclamation:").text();
+    public static final String RECURRING_MARK = MessageTemplate.of(":repeat:").text();
+    public static final String LIST_PREVIOUS_BUTTON = MessageTemplate.of(":arrow_left:").text();
+    public static final String LIST_NEXT_BUTTON = MessageTemplate.of(":arrow_right:").text();
+
+    // история выполненных задач
+    public static final String DONE_HEADER = MessageTemplate.of("Выполненные задачи :white_check_mark::\n").text();
+
+    // результаты поиска
+    public static final String SEARCH_HEADER = MessageTemplate.of("Найденные задачи :mag::\n").text();
+
+    // карточка задачи
+    public static final MessageTemplate TASK = MessageTemplate.of(
+            "Задача №{} :pushpin:\n\nНазвание: {}\n\nОписание: {}");
+    public static final MessageTemplate IMPORTANT_TASK = MessageTemplate.of(
+            ":exclamation: Важная задача №{} :pushpin:\n\nНазвание: {}\n\nОписание: {}");
+    public static final MessageTemplate TASK_DEADLINE = MessageTemplate.of("\n\nДедлайн: {}");
+    public static final MessageTemplate TASK_RECURRENCE = MessageTemplate.of("\nПовтор :repeat:: {}");
+    public static final MessageTemplate RECURRENCE_FORMATS = MessageTemplate.of(
+            "Введите правило повторения: «ежедневно», «еженедельно: пн, чт», «ежемесячно» " +
+                    "(или «ежемесячно: 15»), «каждые 3 дня». «нет» - не повторять");
+
+    // напоминания
+    public static final MessageTemplate REMINDER_TOMORROW = MessageTemplate.of(
+            "У вас есть задача «{}», которая завтра должна быть выполнена!");
+    public static final MessageTemplate REMINDER = MessageTemplate.of(
+            "У вас есть задача «{}», которая должна быть выполнена {}!");
+    public static final MessageTemplate REMINDER_IMPORTANT = MessageTemplate.of(
+            "Внимание! У вас есть важная задача «{}», которая должна быть выполнена {}!");
+
+    // сводка напоминаний (одно сообщение на пользователя)
+    public static final String REMINDER_DIGEST_HEADER = MessageTemplate.of("Напоминание о задачах :alarm_clock::\n").text();
+    public static final MessageTemplate REMINDER_DIGEST_ITEM = MessageTemplate.of("• «{}» - {}\n");
+    public static final MessageTemplate REMINDER_DIGEST_IMPORTANT_ITEM = MessageTemplate.of(":exclamation: «{}» - {}\n");
+
+    // ограничение входящих запросов
+    public static final String THROTTLED = MessageTemplate.of(
+            "Слишком много запросов :hourglass:, подождите немного").text();
+    public static final String OVERLOADED = MessageTemplate.of(
+            "Бот сейчас перегружен :hourglass:, попробуйте чуть позже").text();
+
+    // рассылка всем пользователям (сообщение администратора с ходом рассылки)
+    public static final MessageTemplate BROADCAST_PROGRESS = MessageTemplate.of(
+            "Рассылка :mega:: обработано {} из {}\nОтправлено: {}, ошибок: {}");
+    public static final MessageTemplate BROADCAST_FINISHED = MessageTemplate.of(
+            "Рассылка завершена :white_check_mark:: обработано {} из {}\nОтправлено: {}, ошибок: {}");
+    public static final MessageTemplate BROADCAST_CANCELLED = MessageTemplate.of(
+            "Рассылка остановлена :no_entry_sign:: обработано {} из {}\nОтправлено: {}, ошибок: {}");
+
+    private MessageTemplates() {
+    }
+}
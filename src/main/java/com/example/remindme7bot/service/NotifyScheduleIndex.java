@@ -0,0 +1,77 @@
+package com.example.remindme7bot.service;
+
+import com.example.remindme7bot.model.NotifyPreference;
+import com.example.remindme7bot.model.NotifySchedule;
+import com.example.remindme7bot.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Индекс пользовательских расписаний уведомлений: минута суток -> пользователи,
+ * которым в эту минуту нужно отправить напоминания.
+ * Пользователи без своих настроек сюда не попадают и получают уведомления по расписанию по умолчанию.
+ */
+@Slf4j
+@Component
+public class NotifyScheduleIndex {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final Map<Long, NotifySchedule> schedules = new ConcurrentHashMap<>();
+    private final Map<Integer, Set<Long>> byMinute = new ConcurrentHashMap<>();
+
+    /**
+     * Первичное построение индекса из сохранённых настроек
+     */
+    @PostConstruct
+    public void rebuild() {
+        schedules.clear();
+        byMinute.clear();
+        for (NotifyPreference preference : userRepository.findAllNotifyPreferences()) {
+            try {
+                update(preference.chatId(), NotifySchedule.parse(preference.editNotify()));
+            } catch (IllegalArgumentException e) {
+                log.warn("Wrong notify settings of user " + preference.chatId() + ": " + preference.editNotify());
+            }
+        }
+        log.info("Notify schedule index built for " + schedules.size() + " users");
+    }
+
+    /**
+     * Обновление расписания одного пользователя (null - вернуться к расписанию по умолчанию)
+     */
+    public synchronized void update(Long chatId, NotifySchedule schedule) {
+        NotifySchedule previous = schedule == null ? schedules.remove(chatId) : schedules.put(chatId, schedule);
+        if (previous != null) {
+            Set<Long> bucket = byMinute.get(previous.getMinuteOfDay());
+            if (bucket != null) bucket.remove(chatId);
+        }
+        if (schedule != null) {
+            byMinute.computeIfAbsent(schedule.getMinuteOfDay(), m -> ConcurrentHashMap.newKeySet()).add(chatId);
+        }
+    }
+
+    /**
+     * Пользователи, которым нужно отправить уведомления в эту минуту суток
+     */
+    public Set<Long> dueAt(int minuteOfDay) {
+        Set<Long> bucket = byMinute.get(minuteOfDay);
+        return bucket == null ? Collections.emptySet() : Set.copyOf(bucket);
+    }
+
+    public NotifySchedule scheduleOf(Long chatId) {
+        return schedules.getOrDefault(chatId, NotifySchedule.DEFAULT);
+    }
+
+    public boolean hasCustomSchedule(Long chatId) {
+        return schedules.containsKey(chatId);
+    }
+}
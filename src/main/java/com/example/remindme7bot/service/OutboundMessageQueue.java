@@ -0,0 +1,319 @@
+package com.example.remindme7bot.service;
+
+import com.example.remindme7bot.config.BotConfig;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.bots.AbsSender;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Асинхронная очередь исходящих запросов к Telegram.
+ * Соблюдает общий лимит (~30 сообщений/с) и лимит на чат (~1 сообщение/с),
+ * повторяет запросы при 429 (с учётом retry_after) и сетевых ошибках,
+ * а ответы пользователям отправляет раньше массовых напоминаний.
+ * Порядок сообщений внутри одного чата сохраняется.
+ * <p>
+ * Поток планирования выбирает, что отправлять (лимиты, порядок, повторы), а сами HTTP-запросы
+ * выполняет пул из bot.outbound.senders потоков: иначе скорость ограничивало бы время ответа Telegram,
+ * а не лимит. У каждого чата в полёте не больше одного запроса.
+ */
+@Slf4j
+// имя задано явно: на него ссылается @DependsOn в UpdateDispatcher, в том числе когда класс подключён через @Import
+@Component("outboundMessageQueue")
+public class OutboundMessageQueue {
+
+    /**
+     * Полосы приоритета: интерактивные ответы идут раньше массовых рассылок
+     */
+    public enum Priority {
+        INTERACTIVE,
+        BULK
+    }
+
+    private static final long IDLE_POLL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long BUCKET_CLEANUP_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(30);
+    // признак того, что запрос завершён и повторять его не нужно
+    private static final long DONE = -1;
+    // пустой элемент очереди: будит поток планирования после завершения запроса
+    private static final Outgoing<?> WAKE_UP = new Outgoing<>(0, null, Priority.INTERACTIVE, Long.MIN_VALUE);
+
+    private final PriorityBlockingQueue<Outgoing<?>> inbox = new PriorityBlockingQueue<>(64,
+            Comparator.<Outgoing<?>>comparingInt(o -> o.priority.ordinal()).thenComparingLong(o -> o.seq));
+    private final ConcurrentLinkedQueue<Completion> completions = new ConcurrentLinkedQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final TokenBucket globalBucket;
+    private final double chatRate;
+    private final double chatBurst;
+    private final int maxAttempts;
+    private final int senderThreads;
+    private final long drainMillis;
+    private final BotMetrics metrics;
+
+    // состояние ниже используется только потоком планирования
+    private final Map<Long, TokenBucket> chatBuckets = new HashMap<>();
+    // чаты, у которых запрос в полёте или ждёт лимита/повтора; новые запросы встают в конец их очереди
+    private final Map<Long, ChatLane> lanes = new HashMap<>();
+    private final PriorityQueue<ChatLane> parkedByTime = new PriorityQueue<>(Comparator.comparingLong(p -> p.readyAt));
+    private long lastCleanup = System.nanoTime();
+
+    private volatile AbsSender sender;
+    private Thread worker;
+    private ExecutorService senders;
+
+    public OutboundMessageQueue(BotConfig config, BotMetrics metrics) {
+        this.globalBucket = new TokenBucket(config.getOutboundGlobalRate(), config.getOutboundGlobalRate());
+        this.chatRate = config.getOutboundChatRate();
+        this.chatBurst = config.getOutboundChatBurst();
+        this.maxAttempts = config.getOutboundMaxAttempts();
+        this.senderThreads = Math.max(1, config.getOutboundSenders());
+        this.drainMillis = TimeUnit.SECONDS.toMillis(config.getOutboundDrainSeconds());
+        this.metrics = metrics;
+    }
+
+    /**
+     * Запуск потока планирования и пула отправки
+     */
+    public synchronized void start(AbsSender sender) {
+        if (worker != null) return;
+        this.sender = sender;
+        senders = Executors.newFixedThreadPool(senderThreads, new CustomizableThreadFactory("outbound-sender-"));
+        worker = new Thread(this::run, "outbound-scheduler");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Поставить запрос в очередь. Возвращает future с ответом Telegram
+     */
+    public <T extends Serializable> CompletableFuture<T> submit(long chatId, BotApiMethod<T> method, Priority priority) {
+        Outgoing<T> outgoing = new Outgoing<>(chatId, method, priority, sequence.incrementAndGet());
+        pending.incrementAndGet();
+        outgoing.future.whenComplete((result, error) -> pending.decrementAndGet());
+        inbox.add(outgoing);
+        return outgoing.future;
+    }
+
+    /**
+     * Количество запросов, ожидающих отправки
+     */
+    public int getQueueDepth() {
+        return pending.get();
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Completion completion;
+                while ((completion = completions.poll()) != null) completed(completion);
+                long now = System.nanoTime();
+                ChatLane due = parkedByTime.peek();
+                if (due != null && due.readyAt <= now) {
+                    parkedByTime.poll();
+                    advance(due);
+                    continue;
+                }
+                long waitNanos = due == null ? IDLE_POLL_NANOS : Math.min(IDLE_POLL_NANOS, due.readyAt - now);
+                Outgoing<?> outgoing = inbox.poll(waitNanos, TimeUnit.NANOSECONDS);
+                if (outgoing != null && outgoing != WAKE_UP) process(outgoing);
+                cleanupIdleBuckets();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("Error occurred in outbound sender: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private void process(Outgoing<?> outgoing) throws InterruptedException {
+        // если чат занят (запрос в полёте, лимит или retry_after), встаём в конец его очереди,
+        // чтобы не нарушить порядок
+        ChatLane lane = lanes.get(outgoing.chatId);
+        if (lane != null) {
+            lane.items.addLast(outgoing);
+            return;
+        }
+        lane = new ChatLane(outgoing.chatId);
+        lane.items.addLast(outgoing);
+        lanes.put(outgoing.chatId, lane);
+        advance(lane);
+    }
+
+    /**
+     * Отправка первого запроса чата, как только позволяют лимиты. Ответ обрабатывает completed
+     */
+    private void advance(ChatLane lane) throws InterruptedException {
+        Outgoing<?> next = lane.items.peekFirst();
+        if (next == null) {
+            lanes.remove(lane.chatId);
+            return;
+        }
+        TokenBucket chatBucket = chatBuckets.computeIfAbsent(lane.chatId, id -> new TokenBucket(chatRate, chatBurst));
+        long wait = chatBucket.nanosUntilAvailable(1);
+        if (wait > 0) {
+            park(lane, wait);
+            return;
+        }
+        globalBucket.acquire();
+        chatBucket.tryAcquire();
+        next.attempts++;
+        senders.execute(() -> {
+            completions.add(new Completion(lane, attempt(next)));
+            inbox.add(WAKE_UP);
+        });
+    }
+
+    private void completed(Completion completion) throws InterruptedException {
+        if (completion.delay == DONE) {
+            completion.lane.items.pollFirst();
+            advance(completion.lane);
+        } else {
+            park(completion.lane, completion.delay);
+        }
+    }
+
+    private void park(ChatLane lane, long delayNanos) {
+        lane.readyAt = System.nanoTime() + delayNanos;
+        parkedByTime.add(lane);
+    }
+
+    /**
+     * Попытка отправки (в потоке пула). Возвращает задержку в наносекундах до повтора
+     * и DONE, если запрос завершён (успешно или окончательной ошибкой)
+     */
+    private <T extends Serializable> long attempt(Outgoing<T> outgoing) {
+        String method = outgoing.method.getMethod();
+        Timer.Sample sample = metrics.startTimer();
+        try {
+            T result = sender.execute(outgoing.method);
+            metrics.recordTelegramCall(sample, method, "success");
+            outgoing.future.complete(result);
+            return DONE;
+        } catch (TelegramApiRequestException e) {
+            Integer code = e.getErrorCode();
+            metrics.recordTelegramCall(sample, method, outcomeOf(code));
+            metrics.recordError("telegram", e);
+            if (code != null && code == 429) {
+                Integer retryAfter = e.getParameters() != null ? e.getParameters().getRetryAfter() : null;
+                long delay = retryAfter != null ? TimeUnit.SECONDS.toNanos(retryAfter) : backoff(outgoing.attempts);
+                log.warn("Too many requests to chat " + outgoing.chatId + ", retry in " + delay / 1_000_000 + " ms");
+                return retryOrFail(outgoing, e, delay);
+            }
+            // остальные ошибки 4xx (бот заблокирован, чат не найден и т.п.) повторять бесполезно
+            if (code != null && code >= 400 && code < 500) {
+                log.error("Error occurred: " + e.getMessage());
+                outgoing.future.completeExceptionally(e);
+                return DONE;
+            }
+            return retryOrFail(outgoing, e, backoff(outgoing.attempts));
+        } catch (TelegramApiException e) {
+            metrics.recordTelegramCall(sample, method, "server_error");
+            metrics.recordError("telegram", e);
+            return retryOrFail(outgoing, e, backoff(outgoing.attempts));
+        } catch (RuntimeException e) {
+            log.error("Error occurred in outbound sender: " + e.getMessage(), e);
+            outgoing.future.completeExceptionally(e);
+            return DONE;
+        }
+    }
+
+    private static String outcomeOf(Integer code) {
+        if (code != null && code == 429) return "too_many_requests";
+        if (code != null && code >= 400 && code < 500) return "client_error";
+        return "server_error";
+    }
+
+    private long retryOrFail(Outgoing<?> outgoing, TelegramApiException e, long delay) {
+        if (outgoing.attempts >= maxAttempts) {
+            log.error("Error occurred: " + e.getMessage() + " (gave up after " + outgoing.attempts + " attempts)");
+            outgoing.future.completeExceptionally(e);
+            return DONE;
+        }
+        return delay;
+    }
+
+    private static long backoff(int attempts) {
+        long delay = TimeUnit.MILLISECONDS.toNanos(500) << Math.min(attempts - 1, 6);
+        return Math.min(delay, MAX_BACKOFF_NANOS);
+    }
+
+    private void cleanupIdleBuckets() {
+        long now = System.nanoTime();
+        if (now - lastCleanup < BUCKET_CLEANUP_NANOS) return;
+        lastCleanup = now;
+        chatBuckets.entrySet().removeIf(e -> !lanes.containsKey(e.getKey()) && e.getValue().isFull());
+    }
+
+    /**
+     * Остановка: уже принятые запросы (ответы, напоминания, страница рассылки) отправляются
+     * в течение bot.outbound.drain-seconds, отменяется только то, что не успело уйти
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (worker == null) return;
+        long deadline = System.currentTimeMillis() + drainMillis;
+        try {
+            while (pending.get() > 0 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+            worker.interrupt();
+            worker.join(1000);
+            senders.shutdown();
+            senders.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        senders.shutdownNow();
+        if (pending.get() > 0) log.warn(pending.get() + " outbound messages were not sent before shutdown");
+        Outgoing<?> outgoing;
+        while ((outgoing = inbox.poll()) != null) {
+            if (outgoing != WAKE_UP) outgoing.future.cancel(false);
+        }
+        for (ChatLane lane : lanes.values()) lane.items.forEach(item -> item.future.cancel(false));
+    }
+
+    private static class Outgoing<T extends Serializable> {
+        final long chatId;
+        final BotApiMethod<T> method;
+        final Priority priority;
+        final long seq;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        int attempts;
+
+        Outgoing(long chatId, BotApiMethod<T> method, Priority priority, long seq) {
+            this.chatId = chatId;
+            this.method = method;
+            this.priority = priority;
+            this.seq = seq;
+        }
+    }
+
+    private static class ChatLane {
+        final long chatId;
+        final Deque<Outgoing<?>> items = new ArrayDeque<>();
+        long readyAt;
+
+        ChatLane(long chatId) {
+            this.chatId = chatId;
+        }
+    }
+
+    private record Completion(ChatLane lane, long delay) {
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.remindme7bot.service;
+
+import com.example.remindme7bot.config.BotConfig;
+import com.example.remindme7bot.model.Recurrence;
+import com.example.remindme7bot.model.Todo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Перенос дедлайнов пропущенных повторяющихся задач на текущее повторение: в полночь и при запуске
+ * (если бот был остановлен в полночь). После него запросы напоминаний читают только ограниченный
+ * диапазон дат. Пачка читается и сохраняется (updateTodos) отдельными короткими транзакциями
+ */
+@Slf4j
+@Component
+public class RecurrenceCatchUp {
+
+    @Autowired
+    private BotConfig config;
+    @Autowired
+    private TodoService todoService;
+    @Autowired
+    private BotMetrics botMetrics;
+
+    @EventListener({ContextRefreshedEvent.class})
+    @Scheduled(cron = "0 0 0 * * ?")
+    public void advanceOverdue() {
+        LocalDate today = LocalDate.now();
+        // пачки того же размера, что и при переносе в архив
+        int batchSize = config.getArchiveBatchSize();
+        long advanced = 0;
+        List<Todo> todos;
+        try {
+            do {
+                todos = todoService.getOverdueRecurring(today, batchSize);
+                if (todos.isEmpty()) break;
+                for (Todo todo : todos)
+                    todo.setDeadline(Recurrence.parse(todo.getRecurrence()).occurrence(todo.getDeadline(), today));
+                // один SELECT и пакет UPDATE на пачку
+                todoService.updateTodos(todos);
+                advanced += todos.size();
+            } while (todos.size() == batchSize);
+        } catch (RuntimeException e) {
+            botMetrics.recordError("recurrence", e);
+            log.error("Error occurred: " + e.getMessage());
+        }
+        if (advanced == 0) return;
+        log.info("Overdue recurring todos advanced: " + advanced);
+    }
+}
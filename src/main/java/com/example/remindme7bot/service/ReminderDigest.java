@@ -0,0 +1,100 @@
+package com.example.remindme7bot.service;
+
+import com.example.remindme7bot.model.TodoReminderView;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Сборка напоминаний в сообщения. В режиме сводки все задачи пользователя идут одним сообщением
+ * (несколькими, если текст длиннее лимита Telegram); задачи должны поступать сгруппированными по чату.
+ * Иначе - отдельное сообщение на каждую задачу
+ */
+class ReminderDigest {
+
+    static final int MAX_MESSAGE_LENGTH = 4096;
+
+    private final boolean grouped;
+    private final BiConsumer<Long, String> sender;
+    private final StringBuilder text = new StringBuilder(512);
+    private long chatId;
+    private boolean started;
+    private int linesInMessage;
+    private long messages;
+
+    ReminderDigest(boolean grouped, BiConsumer<Long, String> sender) {
+        this.grouped = grouped;
+        this.sender = sender;
+    }
+
+    /**
+     * Задача, до дедлайна которой осталось daysLeft дней
+     */
+    void add(TodoReminderView todo, long daysLeft) {
+        if (!grouped) {
+            send(todo.chatId(), reminderText(todo, daysLeft));
+            return;
+        }
+        if (!started || chatId != todo.chatId()) {
+            flush();
+            chatId = todo.chatId();
+            started = true;
+            text.append(MessageTemplates.REMINDER_DIGEST_HEADER);
+        }
+        MessageTemplate template = todo.important()
+                ? MessageTemplates.REMINDER_DIGEST_IMPORTANT_ITEM : MessageTemplates.REMINDER_DIGEST_ITEM;
+        String line = template.render(todo.title(), when(daysLeft));
+        if (linesInMessage > 0 && text.length() + line.length() > MAX_MESSAGE_LENGTH) flush();
+        // даже одна очень длинная строка не должна превысить лимит
+        text.append(line, 0, Math.min(line.length(), MAX_MESSAGE_LENGTH - text.length()));
+        linesInMessage++;
+    }
+
+    /**
+     * Отправка последнего собранного сообщения
+     */
+    void finish() {
+        flush();
+    }
+
+    /**
+     * Количество отправленных сообщений
+     */
+    long getMessages() {
+        return messages;
+    }
+
+    private void flush() {
+        if (text.length() > 0) send(chatId, text.toString());
+        text.setLength(0);
+        linesInMessage = 0;
+    }
+
+    private void send(long chatId, String message) {
+        sender.accept(chatId, message);
+        messages++;
+    }
+
+    /**
+     * Текст отдельного напоминания о задаче
+     */
+    static String reminderText(TodoReminderView todo, long daysLeft) {
+        if (daysLeft == 1) return MessageTemplates.REMINDER_TOMORROW.render(todo.title());
+        if (todo.important()) return MessageTemplates.REMINDER_IMPORTANT.render(todo.title(), when(daysLeft));
+        return MessageTemplates.REMINDER.render(todo.title(), when(daysLeft));
+    }
+
+    private static String when(long daysLeft) {
+        if (daysLeft == 0) return "сегодня";
+        if (daysLeft == 1) return "завтра";
+        return "через " + daysLeft + " " + daysWord(daysLeft);
+    }
+
+    private static String daysWord(long days) {
+        long mod100 = days % 100;
+        long mod10 = days % 10;
+        if (mod100 >= 11 && mod100 <= 14) return "дней";
+        if (mod10 == 1) return "день";
+        if (mod10 >= 2 && mod10 <= 4) return "дня";
+        return "дней";
+    }
+}
@@ -1,44 +1,52 @@
 package com.example.remindme7bot.service;
 
 import com.example.remindme7bot.config.BotConfig;
+import com.example.remindme7bot.model.ChatStage;
 import com.example.remindme7bot.model.ChatState;
+import com.example.remindme7bot.model.DoneItem;
+import com.example.remindme7bot.model.NotifySchedule;
+import com.example.remindme7bot.model.Recurrence;
 import com.example.remindme7bot.model.Todo;
+import com.example.remindme7bot.model.TodoListItem;
+import com.example.remindme7bot.model.TodoPage;
 import com.example.remindme7bot.model.User;
 import com.example.remindme7bot.repository.TodoRepository;
 import com.example.remindme7bot.repository.UserRepository;
-import com.vdurmont.emoji.EmojiParser;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
 import org.telegram.telegrambots.bots.TelegramLongPollingBot;
+import org.telegram.telegrambots.meta.api.methods.AnswerCallbackQuery;
 import org.telegram.telegrambots.meta.api.methods.commands.SetMyCommands;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
+import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
 import org.telegram.telegrambots.meta.api.objects.Message;
 import org.telegram.telegrambots.meta.api.objects.Update;
 import org.telegram.telegrambots.meta.api.objects.commands.BotCommand;
 import org.telegram.telegrambots.meta.api.objects.commands.scope.BotCommandScopeDefault;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 
 import java.sql.Timestamp;
 import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Component
 public class TelegramBot extends TelegramLongPollingBot {
 
-    private static final String HELP_TEXT = "Список команд:\n" +
-            "Команда /start - приветственное сообщение\n" +
-            "Команда /new - создать новую задачу\n" +
-            "Команда /todo - посмотреть список задач\n" +
-            "Команда /notify - настроить уведомления\n" +
-            "Чтобы редактировать задачу достаточно просто ввести " +
-            "её номер в списке. Например /2 (Можно без \"/\")";
     final BotConfig config;
     @Autowired
     private UserRepository userRepository;
@@ -48,8 +56,75 @@ public class TelegramBot extends TelegramLongPollingBot {
     private TodoService todoService;
     @Autowired
     private KeyboardSetups keyboardSetups;
+    @Autowired
+    private UpdateDispatcher updateDispatcher;
+    @Autowired
+    private InboundLimiter inboundLimiter;
+    @Autowired
+    private Broadcaster broadcaster;
+    @Autowired
+    private OutboundMessageQueue outboundQueue;
+    @Autowired
+    private NotifyScheduleIndex notifyScheduleIndex;
+    @Autowired
+    private TodoListCache todoListCache;
+    @Autowired
+    private TodoSearchIndex todoSearchIndex;
+    @Autowired
+    private BotMetrics botMetrics;
     // состояния чата для принятия ответов на сообщения
-    private final Map<Long, ChatState> chatStates = new HashMap<>();
+    @Autowired
+    private ChatStateStore chatStates;
+
+    /**
+     * Обработчик входящего текста. chatState - текущее состояние диалога (может быть null)
+     */
+    @FunctionalInterface
+    private interface Handler {
+        void handle(Long chatId, ChatState chatState, Message message);
+    }
+
+    /**
+     * Строка таблицы команд: название (для метрик) и обработчик
+     */
+    private record Route(String name, Handler handler) {
+    }
+
+    /**
+     * Обработчик нажатия inline-кнопки. data - данные кнопки без префикса, messageId - сообщение с кнопкой.
+     * Возвращает текст всплывающего уведомления (null - без уведомления)
+     */
+    @FunctionalInterface
+    private interface CallbackHandler {
+        String handle(Long chatId, Integer messageId, String data);
+    }
+
+    private record CallbackRoute(String name, CallbackHandler handler) {
+    }
+
+    // задач на одной странице списка и длина названия в списке (чтобы страница не превысила лимит Telegram)
+    private static final int LIST_PAGE_SIZE = 30;
+    private static final int LIST_TITLE_LENGTH = 100;
+    private static final String LIST_CALLBACK = "todo";
+    private static final String TASK_NOT_FOUND = "Задача не найдена. Проверьте /todo";
+    // выполненных задач на странице истории /done
+    private static final int DONE_PAGE_SIZE = 20;
+    private static final DateTimeFormatter DONE_DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+    // найденных задач в ответе на /find
+    private static final int SEARCH_RESULTS = 10;
+
+    // команды вне диалога: текст сообщения -> обработчик
+    private final Map<String, Route> commands = new HashMap<>();
+    // команды с аргументом ("/find слова"): первое слово сообщения -> обработчик
+    private final Map<String, Route> argumentCommands = new HashMap<>();
+    // кнопки и ответы, ожидаемые на каждом этапе диалога
+    private final Map<ChatStage, Map<String, Route>> stageInputs = new EnumMap<>(ChatStage.class);
+    // обработчик прочего текста на этапе (ввод названия, даты и т.п.); если его нет, работают обычные команды
+    private final Map<ChatStage, Route> stageText = new EnumMap<>(ChatStage.class);
+    // inline-кнопки: префикс данных кнопки (до ':') -> обработчик
+    private final Map<String, CallbackRoute> callbacks = new HashMap<>();
+    private final Route taskNumberRoute = new Route("task_number", this::taskNumberCommand);
+    private final Route unknownRoute = new Route("unknown", (chatId, chatState, message) -> unknownCommand(chatId));
 
     /*List<Long> paidChatIds = Arrays.asList(
             1196596174L, // BadHard
@@ -57,12 +132,16 @@ public class TelegramBot extends TelegramLongPollingBot {
     );*/
 
     public TelegramBot(BotConfig config) {
+        super(botOptions(config), config.getToken());
         this.config = config;
+        buildRoutes();
         List<BotCommand> listOfCommands = new ArrayList<>();
         listOfCommands.add(new BotCommand("/start", "Начать общение с ботом"));
         listOfCommands.add(new BotCommand("/help", "Список команд"));
         listOfCommands.add(new BotCommand("/new", "Новая задача"));
         listOfCommands.add(new BotCommand("/todo", "Список задач"));
+        listOfCommands.add(new BotCommand("/find", "Поиск задач"));
+        listOfCommands.add(new BotCommand("/done", "Выполненные задачи"));
         listOfCommands.add(new BotCommand("/1", "Редактировать задачу 1"));
         listOfCommands.add(new BotCommand("/2", "Редактировать задачу 2"));
         listOfCommands.add(new BotCommand("/notify", "Настроить уведомления"));
@@ -73,6 +152,20 @@ public class TelegramBot extends TelegramLongPollingBot {
         }
     }
 
+    /**
+     * Настройки клиента Bot API. Адрес API можно заменить, например, на локальную заглушку
+     */
+    private static DefaultBotOptions botOptions(BotConfig config) {
+        DefaultBotOptions options = new DefaultBotOptions();
+        if (!config.getApiUrl().isEmpty()) options.setBaseUrl(config.getApiUrl());
+        return options;
+    }
+
+    @PostConstruct
+    public void startOutboundQueue() {
+        outboundQueue.start(this);
+    }
+
     @Override
     public String getBotUsername() {
         return config.getBotName();
@@ -85,142 +178,342 @@ public class TelegramBot extends TelegramLongPollingBot {
 
     @Override
     public void onUpdateReceived(Update update) {
-        if (update.hasMessage() && update.getMessage().hasText()) {
-            String messageText = update.getMessage().getText();
-            Long chatId = update.getMessage().getChatId();
-
-            // Получаем состояние чата
-            ChatState chatState = chatStates.get(chatId);
-
-            // Если у пользователя должен ответить на что-то и это связано с редактированием задачи
-            if (chatState != null && chatState.isEditingTask()) {
-                // то проверяем, изменяет ли он название
-                if (chatState.isEditingTitle()) {
-                    setNewTitle(chatId, chatState.getTaskId(), messageText);
-                    sendMessage(chatId, "Название изменено!");
-                    todoListCommandReceived(chatId);
-                    return;
-                }
-                // то проверяем, изменяет ли он описание
-                if (chatState.isEditingDescription()) {
-                    setNewDescription(chatId, chatState.getTaskId(), messageText);
-                    sendMessage(chatId, "Описание изменено!");
-                    chatState.setEditingDescription(false);
-                    taskNumberReceived(chatId, chatState.getTaskId());
-                    return;
-                }
-                // то проверяем, изменяет ли он дедлайн
-                if (chatState.isEditingDeadline()) {
-                    setDeadlineFromString(chatId, chatState.getTaskId(), messageText);
-                    return;
-                }
+        // обработка идёт в потоке, закреплённом за чатом, чтобы не задерживать остальные чаты
+        updateDispatcher.dispatch(update, this::admit, this::handleUpdate);
+    }
 
-                // Если он только собирается что-то изменить у задачи
-                switch (messageText) {
-                    case "Название":
-                        chatState.setEditingTitle(true);
-                        sendMessage(chatId, "Введите новое название");
-                        return;
-                    case "Описание":
-                        chatState.setEditingDescription(true);
-                        sendMessage(chatId, "Введите новое описание");
-                        return;
-                    case "Дедлайн":
-                        chatState.setEditingDeadline(true);
-                        sendMessage(chatId, "Введите дату дедлайна в формате \"yyyy-mm-dd\"");
-                        return;
-                    case "Отметить важным":
-                        if (makeImportant(chatState.getTaskId()))
-                            sendMessage(chatId, "Задача отмечена как важная!");
-                        else
-                            sendMessage(chatId, "Задача больше не отмечена как важная!");
-                        chatStates.remove(chatId);
-                        todoListCommandReceived(chatId);
-                        return;
-                    case "Выполнить":
-                        todoRepository.deleteById(chatState.getTaskId());
-                        chatStates.remove(chatId);
-                        todoListCommandReceived(chatId);
-                        return;
-                    case "Назад":
-                        chatStates.remove(chatId);
-                        todoListCommandReceived(chatId);
-                        return;
-                }
+    /**
+     * Лимит чата и защита от перегрузки. Отказ на нажатие кнопки показывается всегда,
+     * на сообщение - один раз, пока запросы чата снова не начнут проходить
+     */
+    private boolean admit(Update update) {
+        Long chatId = UpdateDispatcher.chatIdOf(update);
+        if (chatId == null) return true;
+        InboundLimiter.Decision decision = inboundLimiter.admit(chatId, routeNameOf(update));
+        if (decision == InboundLimiter.Decision.ADMITTED) return true;
 
-            } else if (chatState != null && chatState.isEditingNotify()) {
-                if (messageText.equals("Отменить")) {
-                    chatStates.remove(chatId);
-                    sendMessage(chatId, "Установка новых даты и времени уведомлений отменена.");
-                    todoListCommandReceived(chatId);
-                    return;
-                }
+        String notice = decision == InboundLimiter.Decision.THROTTLED
+                ? MessageTemplates.THROTTLED
+                : MessageTemplates.OVERLOADED;
+        if (update.hasCallbackQuery()) {
+            AnswerCallbackQuery answer = new AnswerCallbackQuery(update.getCallbackQuery().getId());
+            answer.setText(notice);
+            outboundQueue.submit(chatId, answer, OutboundMessageQueue.Priority.INTERACTIVE);
+        } else if (inboundLimiter.warn(chatId)) {
+            sendMessage(chatId, notice);
+        }
+        return false;
+    }
 
-                User user = userRepository.findById(chatId).get();
-                user.setEditNotify(messageText);
-                userRepository.save(user);
-                sendMessage(chatId, "Ваш запрос успешно принят в работу! Изменения вступят в силу " +
-                        "в течении суток.\n\nЕсли Вы хотите установить другие дату и время, еще раз введите команду " +
-                        "/notify\n\nПо любым вопросам обращайтесь по номеру оплаты: 8(916)119-25-55");
-                chatStates.remove(chatId);
-                todoListCommandReceived(chatId);
-                return;
-            } else if (chatState != null) { // Если ждали ответ на создание новой задачи
-                newTodoCommandReceived2(chatId, chatState, messageText);
-                return;
-            }
+    /**
+     * Название обработчика для оценки стоимости обновления. Этап диалога не учитывается:
+     * ответы внутри диалога стоят как обычный текст
+     */
+    private String routeNameOf(Update update) {
+        if (update.hasCallbackQuery()) {
+            String data = update.getCallbackQuery().getData();
+            if (data == null) return "ignored";
+            int separator = data.indexOf(':');
+            CallbackRoute route = callbacks.get(separator < 0 ? data : data.substring(0, separator));
+            return route == null ? "unknown_callback" : route.name();
+        }
+        if (!update.hasMessage() || !update.getMessage().hasText()) return "ignored";
+        String text = update.getMessage().getText();
+        Route route = commands.get(text);
+        int space = firstWhitespace(text);
+        if (route == null && space > 0) route = argumentCommands.get(text.substring(0, space));
+        return route == null ? "text" : route.name();
+    }
 
-            // базовые команды
-            switch (messageText) {
-                case "/start":
-                    registerUser(update.getMessage());
-                    startCommandReceived(chatId, update.getMessage().getChat().getFirstName());
-                    break;
-                case "/help":
-                case "help":
-                    sendMessage(chatId, HELP_TEXT);
-                    break;
-                case "/todo":
-                case "todo":
-                case "Лист":
-                    todoListCommandReceived(chatId);
-                    break;
-                case "/new":
-                case "new":
-                case "Новая задача":
-                    newTodoCommandReceived1(chatId);
-                    break;
-                /*case "/notify":
-                case "notify":
-                case "Уведомления":
-                    editNotify(chatId);
-                    break;*/
-                case "/send":
-                    secretSend(chatId);
-                default:
-                    // проверяем не хотел ли пользователь изменить какую-то задачу под определенным номером
-                    try {
-                        taskNumberReceived(chatId, Integer.parseInt(messageText.replace("/", "")));
-                        log.info("taskNumberReceived by User: " + update.getMessage().getChat().getFirstName());
-                    } catch (NumberFormatException ignored) {
-                        sendMessage(chatId, "Простите, команда не распознана");
-                        log.warn("Wrong command by: " + userRepository.findById(chatId));
-                    }
-            }
+    /**
+     * Обработка одного обновления (вызывается последовательно для каждого чата) с замером времени
+     */
+    private void handleUpdate(Update update) {
+        Timer.Sample sample = botMetrics.startTimer();
+        String command = "failed";
+        RuntimeException error = null;
+        try {
+            command = processUpdate(update);
+        } catch (RuntimeException e) {
+            error = e;
+            throw e;
+        } finally {
+            botMetrics.recordCommand(sample, command, error);
+        }
+    }
+
+    /**
+     * Разбор обновления. Возвращает название обработанной команды (ветки) для метрик
+     */
+    private String processUpdate(Update update) {
+        if (update.hasCallbackQuery()) return processCallback(update.getCallbackQuery());
+        if (!update.hasMessage() || !update.getMessage().hasText()) return "ignored";
+        Message message = update.getMessage();
+        Long chatId = message.getChatId();
+
+        // Получаем состояние чата
+        ChatState chatState = chatStates.get(chatId);
+
+        Route route = route(chatState, message.getText());
+        route.handler().handle(chatId, chatState, message);
+        return route.name();
+    }
+
+    /**
+     * Нажатие inline-кнопки под сообщением бота
+     */
+    private String processCallback(CallbackQuery query) {
+        if (query.getMessage() == null || query.getData() == null) return "ignored";
+        Long chatId = query.getMessage().getChatId();
+        String data = query.getData();
+        int separator = data.indexOf(':');
+        CallbackRoute route = callbacks.get(separator < 0 ? data : data.substring(0, separator));
+        String notification = null;
+        if (route == null) log.warn("Unknown callback " + data + " from: " + chatId);
+        else notification = route.handler().handle(chatId, query.getMessage().getMessageId(), data.substring(separator + 1));
+
+        // ответ на нажатие обязателен: иначе у пользователя не пропадёт индикатор загрузки на кнопке
+        AnswerCallbackQuery answer = new AnswerCallbackQuery(query.getId());
+        answer.setText(notification);
+        outboundQueue.submit(chatId, answer, OutboundMessageQueue.Priority.INTERACTIVE);
+        return route == null ? "unknown_callback" : route.name();
+    }
+
+    /**
+     * Выбор обработчика: сначала ответы, ожидаемые на текущем этапе диалога, затем обычные команды,
+     * затем номер задачи
+     */
+    private Route route(ChatState chatState, String text) {
+        if (chatState != null) {
+            Route route = stageInputs.get(chatState.getStage()).get(text);
+            if (route == null) route = stageText.get(chatState.getStage());
+            if (route != null) return route;
+        }
+        Route route = commands.get(text);
+        if (route != null) return route;
+        int space = firstWhitespace(text);
+        if (space > 0 && (route = argumentCommands.get(text.substring(0, space))) != null) return route;
+        return taskNumberOf(text) != null ? taskNumberRoute : unknownRoute;
+    }
+
+    /**
+     * Таблица команд и переходов между этапами диалога. Заполняется один раз при создании бота
+     */
+    private void buildRoutes() {
+        for (ChatStage stage : ChatStage.values()) stageInputs.put(stage, new HashMap<>());
+
+        // базовые команды
+        command("start", (chatId, state, message) -> {
+            registerUser(message);
+            startCommandReceived(chatId, message.getChat().getFirstName());
+        }, "/start");
+        command("help", (chatId, state, message) -> sendMessage(chatId, MessageTemplates.HELP.text()),
+                "/help", "help");
+        command("todo", (chatId, state, message) -> todoListCommandReceived(chatId), "/todo", "todo", "Лист");
+        command("new", (chatId, state, message) -> newTodoCommandReceived1(chatId), "/new", "new", "Новая задача");
+        command("done", (chatId, state, message) -> doneCommandReceived(chatId), "/done", "done");
+        command("find", (chatId, state, message) -> findCommandReceived(chatId, message.getText()), "/find", "find");
+        argumentCommand("find", (chatId, state, message) -> findCommandReceived(chatId, message.getText()), "/find", "find");
+        /*command("notify", (chatId, state, message) -> editNotify(chatId), "/notify", "notify", "Уведомления");*/
+
+        // рассылка всем пользователям (только для bot.admin-chat-ids)
+        command("broadcast", (chatId, state, message) -> broadcastCommandReceived(chatId, message.getText()),
+                "/broadcast");
+        argumentCommand("broadcast", (chatId, state, message) -> broadcastCommandReceived(chatId, message.getText()),
+                "/broadcast");
+        command("broadcast_stop", (chatId, state, message) -> broadcastStopRequested(chatId), "/broadcast_stop");
+
+        // inline-кнопки: страницы списка и карточка задачи (сообщение изменяется на месте)
+        callback(LIST_CALLBACK, "todo_page", this::todoPageRequested);
+        callback("history", "done_page", this::donePageRequested);
+        callback("list", "todo_list", (chatId, messageId, data) -> {
+            chatStates.remove(chatId);
+            showTodoList(chatId, messageId);
+            return null;
+        });
+        callback("task", "task_card", this::taskRequested);
+        callback("open", "task_open", this::taskOpened);
+        callback("title", "edit_title", (chatId, messageId, data) ->
+                inlineEditingRequested(chatId, messageId, data, ChatStage.EDITING_TITLE, "Введите новое название"));
+        callback("description", "edit_description", (chatId, messageId, data) ->
+                inlineEditingRequested(chatId, messageId, data, ChatStage.EDITING_DESCRIPTION, "Введите новое описание"));
+        callback("deadline", "edit_deadline", (chatId, messageId, data) ->
+                inlineEditingRequested(chatId, messageId, data, ChatStage.EDITING_DEADLINE,
+                        "Введите дату дедлайна в формате \"yyyy-mm-dd\""));
+        callback("recurrence", "edit_recurrence", (chatId, messageId, data) ->
+                inlineEditingRequested(chatId, messageId, data, ChatStage.EDITING_RECURRENCE,
+                        MessageTemplates.RECURRENCE_FORMATS.text()));
+        callback("important", "edit_important", this::importantToggled);
+        callback("done", "complete", this::completeRequested);
+
+        // создание задачи
+        stageInput(ChatStage.NEW_TODO_TITLE, "Отменить", "new_todo_cancel", this::newTodoCancelled);
+        stageText(ChatStage.NEW_TODO_TITLE, "new_todo_title", this::newTodoCommandReceived2);
+        stageInput(ChatStage.NEW_TODO_DESCRIPTION, "Отменить", "new_todo_cancel", this::newTodoCancelled);
+        stageText(ChatStage.NEW_TODO_DESCRIPTION, "new_todo_description", this::newTodoCommandReceived3);
+
+        // ввод новых значений задачи: карточка задачи обновляется на месте
+        stageInput(ChatStage.EDITING_TITLE, "Отменить", "edit_title_cancel", (chatId, state, message) -> {
+            chatStates.remove(chatId);
+            sendMessage(chatId, "Изменение названия отменено");
+            taskNumberReceived(chatId, state.getTaskId(), state.getMessageId());
+        });
+        stageText(ChatStage.EDITING_TITLE, "edit_title_input", (chatId, state, message) ->
+                showTask(chatId, state.getMessageId(), setNewTitle(chatId, state.getTaskId(), message.getText())));
+        stageInput(ChatStage.EDITING_DESCRIPTION, "Отменить", "edit_description_cancel", (chatId, state, message) -> {
+            chatStates.remove(chatId);
+            sendMessage(chatId, "Изменение описания отменено");
+            taskNumberReceived(chatId, state.getTaskId(), state.getMessageId());
+        });
+        stageText(ChatStage.EDITING_DESCRIPTION, "edit_description_input", (chatId, state, message) ->
+                showTask(chatId, state.getMessageId(),
+                        setNewDescription(chatId, state.getTaskId(), message.getText())));
+        stageInput(ChatStage.EDITING_DEADLINE, "Отменить", "edit_deadline_cancel", (chatId, state, message) -> {
+            chatStates.remove(chatId);
+            // отдельное сообщение возвращает обычную клавиатуру
+            sendMessage(chatId, "Установка дедлайна отменена");
+            taskNumberReceived(chatId, state.getTaskId(), state.getMessageId());
+        });
+        stageText(ChatStage.EDITING_DEADLINE, "edit_deadline_input", (chatId, state, message) ->
+                setDeadlineFromString(chatId, state.getTaskId(), state.getMessageId(), message.getText()));
+        stageInput(ChatStage.EDITING_RECURRENCE, "Отменить", "edit_recurrence_cancel", (chatId, state, message) -> {
+            chatStates.remove(chatId);
+            sendMessage(chatId, "Установка повторения отменена");
+            taskNumberReceived(chatId, state.getTaskId(), state.getMessageId());
+        });
+        stageText(ChatStage.EDITING_RECURRENCE, "edit_recurrence_input", this::recurrenceReceived);
+
+        // настройка уведомлений
+        stageInput(ChatStage.EDITING_NOTIFY, "Отменить", "notify_cancel", (chatId, state, message) -> {
+            chatStates.remove(chatId);
+            sendMessage(chatId, "Установка новых даты и времени уведомлений отменена.");
+            todoListCommandReceived(chatId);
+        });
+        stageText(ChatStage.EDITING_NOTIFY, "notify_input", (chatId, state, message) ->
+                notifyScheduleReceived(chatId, message.getText()));
+    }
+
+    private void command(String name, Handler handler, String... texts) {
+        Route route = new Route(name, handler);
+        for (String text : texts) commands.put(text, route);
+    }
+
+    private void argumentCommand(String name, Handler handler, String... texts) {
+        Route route = new Route(name, handler);
+        for (String text : texts) argumentCommands.put(text, route);
+    }
+
+    /**
+     * Кнопки обрабатываются по префиксу данных: "&lt;префикс&gt;:&lt;данные&gt;"
+     */
+    private void callback(String prefix, String name, CallbackHandler handler) {
+        if (callbacks.putIfAbsent(prefix, new CallbackRoute(name, handler)) != null) {
+            throw new IllegalStateException("Duplicate callback prefix: " + prefix);
         }
     }
 
-    private void secretSend(Long chatId) {
-        if (chatId.equals(1196596174L)) {
-            sendMessage(953940808L, EmojiParser.parseToUnicode("Я тебя люблю :heartpulse:, Эмилия"));
+    private void stageInput(ChatStage stage, String text, String name, Handler handler) {
+        stageInputs.get(stage).put(text, new Route(name, handler));
+    }
+
+    private void stageText(ChatStage stage, String name, Handler handler) {
+        stageText.put(stage, new Route(name, handler));
+    }
+
+    /**
+     * Конец команды в сообщении с аргументом: первый пробельный символ (текст рассылки
+     * может начинаться с новой строки); -1, если аргумента нет
+     */
+    private static int firstWhitespace(String text) {
+        for (int i = 0; i < text.length(); i++)
+            if (Character.isWhitespace(text.charAt(i))) return i;
+        return -1;
+    }
+
+    /**
+     * Номер задачи из сообщения вида "2" или "/2" (null, если это не номер)
+     */
+    private static Integer taskNumberOf(String text) {
+        try {
+            return Integer.valueOf(text.replace("/", ""));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Пользователь хочет изменить задачу под определенным номером
+     */
+    private void taskNumberCommand(Long chatId, ChatState chatState, Message message) {
+        taskNumberReceived(chatId, taskNumberOf(message.getText()));
+        log.info("taskNumberReceived by User: " + message.getChat().getFirstName());
+    }
+
+    private void unknownCommand(Long chatId) {
+        sendMessage(chatId, "Простите, команда не распознана");
+        log.warn("Wrong command by: " + chatId);
+    }
+
+    /**
+     * Переход к вводу нового значения (названия, описания, дедлайна) задачи
+     */
+    private void startEditing(Long chatId, ChatState chatState, ChatStage stage, String prompt) {
+        chatState.setStage(stage);
+        chatStates.put(chatId, chatState);
+        sendMessage(chatId, prompt);
+    }
+
+    /**
+     * Сохранение своего расписания уведомлений в формате "8:00; 2; 1,2,3"
+     */
+    private void notifyScheduleReceived(Long chatId, String messageText) {
+        NotifySchedule schedule;
+        try {
+            schedule = NotifySchedule.parse(messageText);
+        } catch (IllegalArgumentException e) {
+            sendMessage(chatId, "Пожалуйста, введите время и дни в формате \"8:00; 2; 1,2,3\"");
+            log.warn("Wrong notify settings by: " + chatId);
+            return;
+        }
+        User user = userRepository.findById(chatId).get();
+        user.setEditNotify(schedule.toString());
+        userRepository.save(user);
+        notifyScheduleIndex.update(chatId, schedule);
+        sendMessage(chatId, "Новые настройки уведомлений сохранены: " + schedule + "\n\n" +
+                "Если Вы хотите установить другие дату и время, еще раз введите команду " +
+                "/notify\n\nПо любым вопросам обращайтесь по номеру оплаты: 8(916)119-25-55");
+        chatStates.remove(chatId);
+        todoListCommandReceived(chatId);
+    }
+
+    /**
+     * Запуск рассылки: текст - всё, что после команды (с переносами строк)
+     */
+    private void broadcastCommandReceived(Long chatId, String text) {
+        if (!config.getAdminChatIds().contains(chatId)) {
+            unknownCommand(chatId);
+            return;
+        }
+        int space = firstWhitespace(text);
+        String broadcastText = space < 0 ? "" : text.substring(space + 1).trim();
+        if (broadcastText.isEmpty()) {
+            sendMessage(chatId, "Введите текст рассылки после команды. Например: /broadcast Всем привет!");
+        } else if (!broadcaster.start(chatId, broadcastText)) {
+            sendMessage(chatId, "Рассылка уже идёт. Остановить её можно командой /broadcast_stop");
+        }
+    }
+
+    private void broadcastStopRequested(Long chatId) {
+        if (!config.getAdminChatIds().contains(chatId)) {
+            unknownCommand(chatId);
+        } else if (!broadcaster.cancel()) {
+            sendMessage(chatId, "Сейчас рассылка не идёт");
         }
     }
 
     /*private void editNotify(Long chatId) {
         if (paidChatIds.contains(chatId)) {
-            ChatState chatState = new ChatState();
-            chatState.setEditingNotify(true);
-            chatStates.put(chatId, chatState);
+            chatStates.put(chatId, new ChatState(ChatStage.EDITING_NOTIFY));
             sendMessage(chatId, "У Вас оплачен тариф «Pro»!\n\nПожалуйста, напишите время и за сколько " +
                     "дней Вы хотите получать уведомления для обычных и важных задач. Например: 8:00; 2; 1,2,3");
         } else {
@@ -235,34 +528,119 @@ public class TelegramBot extends TelegramLongPollingBot {
     /**
      * Метод установки и сохранения нового названия у задачи
      */
-    private void setNewTitle(Long chatId, Long taskId, String title) {
-        Todo todo = todoRepository.findById(taskId).get();
-        todo.setTitle(title);
-        todoRepository.save(todo);
+    private Todo setNewTitle(Long chatId, Long taskId, String title) {
+        Todo todo = todoService.updateTitle(taskId, title);
         chatStates.remove(chatId);
-        log.info(todo.getUser().getUserName() + " set new title");
+        log.info(chatId + " set new title");
+        return todo;
     }
 
     /**
      * Метод установки и сохранения нового описания у задачи
      */
-    private void setNewDescription(Long chatId, Long taskId, String description) {
-        Todo todo = todoRepository.findById(taskId).get();
-        todo.setDescription(description);
-        todoRepository.save(todo);
+    private Todo setNewDescription(Long chatId, Long taskId, String description) {
+        Todo todo = todoService.updateDescription(taskId, description);
         chatStates.remove(chatId);
-        log.info(todo.getUser().getUserName() + " set new description");
+        log.info(chatId + " set new description");
+        return todo;
     }
 
     /**
-     * Метод установки задачи статуса как важной
+     * Ввод правила повторения задачи ("нет" - задача больше не повторяется)
      */
-    private boolean makeImportant(Long taskId) {
-        Todo todo = todoRepository.findById(taskId).get();
-        todo.setImportant(!todo.getImportant());
-        todoRepository.save(todo);
-        log.info(todo.getUser().getUserName() + " made task important");
-        return todo.getImportant();
+    private void recurrenceReceived(Long chatId, ChatState chatState, Message message) {
+        String text = message.getText().trim();
+        Recurrence recurrence = null;
+        if (!text.equalsIgnoreCase("нет")) {
+            try {
+                recurrence = Recurrence.parse(text);
+            } catch (IllegalArgumentException e) {
+                sendMessage(chatId, MessageTemplates.RECURRENCE_FORMATS.text());
+                log.warn("Wrong recurrence by: " + chatId);
+                return;
+            }
+        }
+        Todo todo = todoService.updateRecurrence(chatState.getTaskId(), recurrence);
+        chatStates.remove(chatId);
+        showTask(chatId, chatState.getMessageId(), todo);
+        log.info(chatId + " set recurrence: " + todo.getRecurrence());
+    }
+
+    /**
+     * Кнопка "Важная": признак переключается, карточка обновляется на месте
+     */
+    private String importantToggled(Long chatId, Integer messageId, String data) {
+        Long taskId = taskIdOf(data);
+        Todo todo = taskId == null ? null : todoService.toggleImportant(chatId, taskId);
+        if (todo == null) return TASK_NOT_FOUND;
+        showTask(chatId, messageId, todo);
+        log.info("Task " + taskId + " made important: " + todo.getImportant());
+        return todo.getImportant() ? "Задача отмечена как важная!" : "Задача больше не отмечена как важная!";
+    }
+
+    /**
+     * Кнопка "Выполнить": карточка задачи заменяется списком задач
+     */
+    private String completeRequested(Long chatId, Integer messageId, String data) {
+        Long taskId = taskIdOf(data);
+        Todo todo = taskId == null ? null : todoService.completeTodo(chatId, taskId);
+        if (todo == null) return TASK_NOT_FOUND;
+        chatStates.remove(chatId);
+        showTodoList(chatId, messageId);
+        log.info("Task " + taskId + " completed by: " + chatId);
+        // повторяющаяся задача остаётся в списке с дедлайном следующего повторения
+        return todo.getRecurrence() == null ? "Задача выполнена!" : "Задача выполнена! Следующий раз: " + todo.getDeadline();
+    }
+
+    /**
+     * Кнопка "Отменить" при вводе нового значения: возврат к карточке задачи
+     */
+    private String taskRequested(Long chatId, Integer messageId, String data) {
+        chatStates.remove(chatId);
+        Todo todo = ownTodo(chatId, data);
+        if (todo == null) return TASK_NOT_FOUND;
+        showTask(chatId, messageId, todo);
+        return null;
+    }
+
+    /**
+     * Кнопка найденной задачи (/find): карточка отправляется новым сообщением, результаты поиска остаются
+     */
+    private String taskOpened(Long chatId, Integer messageId, String data) {
+        Todo todo = ownTodo(chatId, data);
+        if (todo == null) return TASK_NOT_FOUND;
+        chatStates.remove(chatId);
+        showTask(chatId, null, todo);
+        return null;
+    }
+
+    /**
+     * Кнопки "Название", "Описание", "Дедлайн": карточка превращается в приглашение ввести новое значение
+     */
+    private String inlineEditingRequested(Long chatId, Integer messageId, String data, ChatStage stage, String prompt) {
+        Todo todo = ownTodo(chatId, data);
+        if (todo == null) return TASK_NOT_FOUND;
+        ChatState chatState = new ChatState(stage, todo.getId());
+        chatState.setMessageId(messageId);
+        chatStates.put(chatId, chatState);
+        editMessage(chatId, messageId, renderTask(todo) + "\n\n" + prompt, cancelKeyboard(todo.getId()));
+        return null;
+    }
+
+    /**
+     * Задача пользователя по id из данных кнопки (null, если id неверный или задача чужая)
+     */
+    private Todo ownTodo(Long chatId, String data) {
+        Long taskId = taskIdOf(data);
+        return taskId == null ? null : todoRepository.findByIdAndUser_ChatId(taskId, chatId).orElse(null);
+    }
+
+    private static Long taskIdOf(String data) {
+        try {
+            return Long.valueOf(data);
+        } catch (NumberFormatException e) {
+            return null;
+        }
     }
 
     /**
@@ -270,11 +648,7 @@ public class TelegramBot extends TelegramLongPollingBot {
      */
     private void taskNumberReceived(long chatId, Integer num) {
         try {
-            Todo todo = null;
-            List<Todo> todos = todoRepository.findAllByUser_ChatId(chatId);
-            for (Todo temp_todo : todos) {
-                if (temp_todo.getSeqNumber().equals(num)) todo = temp_todo;
-            }
+            Todo todo = todoRepository.findByUser_ChatIdAndSeqNumber(chatId, num).orElse(null);
             if (todo == null) {
                 sendMessage(chatId, "Нет задачи с таким номером. Проверьте /todo");
                 return;
@@ -283,21 +657,21 @@ public class TelegramBot extends TelegramLongPollingBot {
             taskNumberReceivedHelp(chatId, todo);
         } catch (Exception e) {
             sendMessage(chatId, "Нет задачи с таким номером. Проверьте /todo");
-            log.warn("Wrong deadline by: " + userRepository.findById(chatId));
+            log.warn("Wrong deadline by: " + chatId);
         }
     }
 
     /**
      * Получение номера определенной задачи из списка (поиск по ID задачи в БД)
      */
-    private void taskNumberReceived(long chatId, Long taskId) {
+    private void taskNumberReceived(long chatId, Long taskId, Integer messageId) {
         try {
             Todo todo = todoRepository.findById(taskId).get();
 
-            taskNumberReceivedHelp(chatId, todo);
+            showTask(chatId, messageId, todo);
         } catch (Exception e) {
             sendMessage(chatId, "Нет задачи с таким номером. Проверьте /todo");
-            log.warn("Wrong task number by: " + userRepository.findById(chatId));
+            log.warn("Wrong task number by: " + chatId);
         }
     }
 
@@ -305,41 +679,57 @@ public class TelegramBot extends TelegramLongPollingBot {
      * Вспомогательный метод для избежания повторения кода методов "Получения номера определенной задачи"
      */
     private void taskNumberReceivedHelp(Long chatId, Todo todo) {
-        String answer = "";
-        // если задача "важная", то добавляем эмодци
-        if (todo.getImportant()) answer += ":exclamation: Важная з";
-        else answer += "З";
-        answer += "адача №" + todo.getSeqNumber() + " :pushpin:\n\n" +
-                "Название: " + todo.getTitle() + "\n\n" +
-                "Описание: " + todo.getDescription();
-        if (todo.getDeadline() != null) answer += "\n\nДедлайн: " + todo.getDeadline();
-        answer = EmojiParser.parseToUnicode(answer);
-        sendMessage(chatId, answer);
-
-        ChatState chatState = new ChatState();
-        chatState.setEditingTask(true);
-        chatState.setTaskId(todo.getId());
-        chatStates.put(chatId, chatState);
-        sendMessage(chatId, "Что вы хотите изменить?");
-        log.info(todo.getUser().getUserName() + " received task by number:"
+        // действия с задачей - inline-кнопками под карточкой, поэтому карточка отправляется одним сообщением
+        chatStates.remove(chatId);
+        showTask(chatId, null, todo);
+        log.info(chatId + " received task by number:"
                 + todo.getSeqNumber() + " with id: " + todo.getId());
     }
 
     /**
-     * Установка дедлайна
+     * Карточка задачи с кнопками действий: новым сообщением (messageId == null) или вместо сообщения messageId
      */
-    public void setDeadlineFromString(Long chatId, Long taskId, String dateString) {
-        // Отмена установки дедлайна
-        if (dateString.equals("Отменить")) {
-            chatStates.remove(chatId);
-            sendMessage(chatId, "Установка дедлайна отменена");
-            taskNumberReceived(chatId, taskId);
-            return;
+    private void showTask(Long chatId, Integer messageId, Todo todo) {
+        if (messageId == null) sendMessage(chatId, renderTask(todo), taskKeyboard(todo.getId()));
+        else editMessage(chatId, messageId, renderTask(todo), taskKeyboard(todo.getId()));
+    }
+
+    private static String renderTask(Todo todo) {
+        // если задача "важная", то шаблон с эмодзи
+        MessageTemplate template = todo.getImportant() ? MessageTemplates.IMPORTANT_TASK : MessageTemplates.TASK;
+        StringBuilder answer = template.appendTo(new StringBuilder(256),
+                todo.getSeqNumber(), todo.getTitle(), todo.getDescription());
+        if (todo.getDeadline() != null) {
+            // у повторяющейся задачи с пропущенным дедлайном показываем текущее повторение
+            LocalDate deadline = Recurrence.dueDate(todo.getRecurrence(), todo.getDeadline(), LocalDate.now());
+            MessageTemplates.TASK_DEADLINE.appendTo(answer, deadline);
         }
+        if (todo.getRecurrence() != null) MessageTemplates.TASK_RECURRENCE.appendTo(answer, todo.getRecurrence());
+        return answer.toString();
+    }
+
+    private static InlineKeyboardMarkup taskKeyboard(Long taskId) {
+        return new InlineKeyboardMarkup(List.of(
+                List.of(taskButton("Название", "title", taskId), taskButton("Описание", "description", taskId)),
+                List.of(taskButton("Дедлайн", "deadline", taskId), taskButton("Повтор", "recurrence", taskId)),
+                List.of(taskButton("Важная", "important", taskId), taskButton("Выполнить", "done", taskId),
+                        taskButton("К списку", "list", taskId))));
+    }
 
-        // Находим задачу
-        Todo todo = todoRepository.findById(taskId).get();
+    private static InlineKeyboardMarkup cancelKeyboard(Long taskId) {
+        return new InlineKeyboardMarkup(List.of(List.of(taskButton("Отменить", "task", taskId))));
+    }
+
+    private static InlineKeyboardButton taskButton(String text, String action, Long taskId) {
+        InlineKeyboardButton button = new InlineKeyboardButton(text);
+        button.setCallbackData(action + ":" + taskId);
+        return button;
+    }
 
+    /**
+     * Установка дедлайна
+     */
+    public void setDeadlineFromString(Long chatId, Long taskId, Integer messageId, String dateString) {
         // Создаем регулярное выражение для проверки даты в формате "yyyy-MM-dd"
         String datePattern = "\\d{4}-\\d{2}-\\d{2}";
         Pattern pattern = Pattern.compile(datePattern);
@@ -353,118 +743,266 @@ public class TelegramBot extends TelegramLongPollingBot {
                 deadline = LocalDate.parse(dateString, formatter);
             } catch (Exception ignore) {
                 sendMessage(chatId, "Введите корректную дату");
-                log.warn("Wrong deadline by: " + userRepository.findById(chatId));
+                log.warn("Wrong deadline by: " + chatId);
                 return;
             }
-            todo.setDeadline(deadline);
-            todoRepository.save(todo);
+            Todo todo = todoService.updateDeadline(taskId, deadline);
             chatStates.remove(chatId);
-            sendMessage(chatId, "Дедлайн задачи установлен!");
-            todoListCommandReceived(chatId);
-            log.info(todo.getUser().getUserName() + " set new deadline");
+            showTask(chatId, messageId, todo);
+            log.info(chatId + " set new deadline");
         } else {
             // Если дата введена неправильно, отправляем сообщение об ошибке
             // и подсказываем правильный формат
             sendMessage(chatId, "Пожалуйста, введите дату в формате \"yyyy-mm-dd\".");
-            log.warn("Wrong deadline by: " + userRepository.findById(chatId));
+            log.warn("Wrong deadline by: " + chatId);
         }
     }
 
     /**
-     * Вывод списка задач пользователя
+     * Вывод списка задач пользователя (первая страница)
      */
     private void todoListCommandReceived(Long chatId) {
-        int counter = 1;
-        String answer = "Список задач :zap::\n";
+        TodoListMessage answer = firstTodoPage(chatId);
+        if (answer.keyboard() == null) sendMessage(chatId, answer.text());
+        else sendMessage(chatId, answer.text(), answer.keyboard());
+        log.info("Todo list received by user: " + chatId);
+    }
 
-        List<Todo> todos = todoRepository.findAllByUser_ChatId(chatId);
+    /**
+     * Первая страница списка вместо сообщения messageId (например, карточки задачи)
+     */
+    private void showTodoList(Long chatId, Integer messageId) {
+        TodoListMessage answer = firstTodoPage(chatId);
+        editMessage(chatId, messageId, answer.text(), answer.keyboard());
+    }
 
-        // Фильтруем задачи с deadline != null и сортируем по полю LocalDateTime
-        List<Todo> temp_todos = todos.stream()
-                .filter(todo -> todo.getDeadline() != null)
-                .sorted(Comparator.comparing(Todo::getDeadline))
-                .toList();
+    private TodoListMessage firstTodoPage(Long chatId) {
+        // Если список не менялся с прошлого показа, берём готовую страницу из кэша
+        TodoListMessage answer = todoListCache.get(chatId);
+        if (answer == null) {
+            answer = renderTodoPage(todoService.getFirstPage(chatId, LIST_PAGE_SIZE));
+            todoListCache.put(chatId, answer);
+        }
+        return answer;
+    }
 
-        // Сначала выводем те, у которых есть дедлайн (отсортированы по дедлайну)
-        for (Todo todo : temp_todos) {
-            todo.setSeqNumber(counter++);
-            todoRepository.save(todo);
+    /**
+     * Переход на другую страницу списка: сообщение со списком изменяется на месте.
+     * data: направление (&gt; или &lt;), номер первой задачи новой страницы, дедлайн и id задачи-курсора
+     */
+    private String todoPageRequested(Long chatId, Integer messageId, String data) {
+        String[] parts = data.split(":", -1);
+        TodoPage page;
+        try {
+            int position = Integer.parseInt(parts[1]);
+            LocalDate deadline = parts[2].isEmpty() ? null : LocalDate.parse(parts[2]);
+            Long id = Long.valueOf(parts[3]);
+            page = ">".equals(parts[0])
+                    ? todoService.getPageAfter(chatId, deadline, id, position, LIST_PAGE_SIZE)
+                    : todoService.getPageBefore(chatId, deadline, id, position, LIST_PAGE_SIZE);
+        } catch (RuntimeException e) {
+            log.warn("Wrong list page " + data + " from: " + chatId);
+            return null;
+        }
+        TodoListMessage answer = renderTodoPage(page);
+        editMessage(chatId, messageId, answer.text(), answer.keyboard());
+        return null;
+    }
 
-            answer += todo.getSeqNumber() + ". " + todo.getDeadline() + " / ";
+    /**
+     * Формирование текста страницы списка задач и кнопок перехода
+     */
+    private static TodoListMessage renderTodoPage(TodoPage page) {
+        // Задачи уже отсортированы: сначала с дедлайном (по дедлайну), затем без него
+        StringBuilder answer = new StringBuilder(MessageTemplates.LIST_HEADER.length() + page.items().size() * 48)
+                .append(MessageTemplates.LIST_HEADER);
+        for (TodoListItem todo : page.items()) {
+            answer.append(todo.seqNumber()).append(". ");
+            if (todo.deadline() != null) answer.append(todo.deadline()).append(" / ");
             // если задача "важная", то добавляем эмодзи
-            if (todo.getImportant()) answer += ":exclamation:";
-            answer += todo.getTitle() + "\n";
+            if (todo.important()) answer.append(MessageTemplates.IMPORTANT_MARK);
+            if (todo.recurrence() != null) answer.append(MessageTemplates.RECURRING_MARK);
+            String title = todo.title();
+            if (title.length() > LIST_TITLE_LENGTH) answer.append(title, 0, LIST_TITLE_LENGTH).append('…');
+            else answer.append(title);
+            answer.append('\n');
         }
+        if (!page.hasPrevious() && !page.hasNext()) return new TodoListMessage(answer.toString(), null);
 
-        // Теперь те, которые без дедлайна (deadline == null)
-        temp_todos = todos.stream()
-                .filter(todo -> todo.getDeadline() == null)
-                .collect(Collectors.toList());
+        List<InlineKeyboardButton> row = new ArrayList<>(2);
+        if (page.hasPrevious()) {
+            int position = Math.max(1, page.firstPosition() - LIST_PAGE_SIZE);
+            row.add(pageButton(MessageTemplates.LIST_PREVIOUS_BUTTON, "<", position, page.first()));
+        }
+        if (page.hasNext()) {
+            int position = page.firstPosition() + page.items().size();
+            row.add(pageButton(MessageTemplates.LIST_NEXT_BUTTON, ">", position, page.last()));
+        }
+        return new TodoListMessage(answer.toString(), new InlineKeyboardMarkup(List.of(row)));
+    }
 
-        for (Todo todo : temp_todos) {
-            todo.setSeqNumber(counter++);
-            todoRepository.save(todo);
+    private static InlineKeyboardButton pageButton(String text, String direction, int position, TodoListItem cursor) {
+        InlineKeyboardButton button = new InlineKeyboardButton(text);
+        button.setCallbackData(LIST_CALLBACK + ":" + direction + ":" + position + ":"
+                + (cursor.deadline() == null ? "" : cursor.deadline()) + ":" + cursor.id());
+        return button;
+    }
 
-            answer += todo.getSeqNumber() + ". ";
-            // если задача "важная", то добавляем эмодзи
-            if (todo.getImportant()) {
-                answer += ":exclamation:";
+    /**
+     * История выполненных задач (первая страница)
+     */
+    private void doneCommandReceived(Long chatId) {
+        TodoListMessage answer = renderOlderDonePage(
+                todoService.getDonePage(chatId, null, null, DONE_PAGE_SIZE + 1), false);
+        if (answer.keyboard() == null) sendMessage(chatId, answer.text());
+        else sendMessage(chatId, answer.text(), answer.keyboard());
+        log.info("Done list received by user: " + chatId);
+    }
+
+    /**
+     * Переход по истории: data - направление ("&gt;" - к более ранним, "&lt;" - к более новым), время выполнения (мс)
+     * и id крайней показанной задачи; пусто - начало истории
+     */
+    private String donePageRequested(Long chatId, Integer messageId, String data) {
+        TodoListMessage answer;
+        try {
+            if (data.isEmpty()) {
+                answer = renderOlderDonePage(todoService.getDonePage(chatId, null, null, DONE_PAGE_SIZE + 1), false);
+            } else {
+                String[] parts = data.split(":");
+                Timestamp completedAt = new Timestamp(Long.parseLong(parts[1]));
+                Long id = Long.valueOf(parts[2]);
+                if (">".equals(parts[0])) {
+                    answer = renderOlderDonePage(
+                            todoService.getDonePage(chatId, completedAt, id, DONE_PAGE_SIZE + 1), true);
+                } else {
+                    List<DoneItem> items = todoService.getNewerDonePage(chatId, completedAt, id, DONE_PAGE_SIZE + 1);
+                    // неполная страница - значит дошли до начала истории (или она изменилась)
+                    answer = items.size() > DONE_PAGE_SIZE
+                            ? renderDonePage(items.subList(1, items.size()), true, true)
+                            : renderOlderDonePage(todoService.getDonePage(chatId, null, null, DONE_PAGE_SIZE + 1), false);
+                }
             }
-            answer += todo.getTitle() + "\n";
+        } catch (RuntimeException e) {
+            log.warn("Wrong done page " + data + " from: " + chatId);
+            return null;
+        }
+        editMessage(chatId, messageId, answer.text(), answer.keyboard());
+        return null;
+    }
+
+    /**
+     * Страница истории; items - на одну задачу больше страницы, если есть более ранние
+     */
+    private static TodoListMessage renderOlderDonePage(List<DoneItem> items, boolean hasNewer) {
+        boolean hasOlder = items.size() > DONE_PAGE_SIZE;
+        return renderDonePage(hasOlder ? items.subList(0, DONE_PAGE_SIZE) : items, hasNewer, hasOlder);
+    }
+
+    private static TodoListMessage renderDonePage(List<DoneItem> page, boolean hasNewer, boolean hasOlder) {
+        if (page.isEmpty() && !hasNewer) return new TodoListMessage("Выполненных задач пока нет", null);
+        StringBuilder answer = new StringBuilder(MessageTemplates.DONE_HEADER.length() + page.size() * 48)
+                .append(MessageTemplates.DONE_HEADER);
+        for (DoneItem item : page) {
+            answer.append(item.completedAt().toLocalDateTime().format(DONE_DATE_FORMAT)).append(" / ");
+            String title = item.title();
+            if (title.length() > LIST_TITLE_LENGTH) answer.append(title, 0, LIST_TITLE_LENGTH).append('…');
+            else answer.append(title);
+            answer.append('\n');
         }
+        if (!hasOlder && !hasNewer) return new TodoListMessage(answer.toString(), null);
 
-        // Преобразовываем эмодзи
-        answer = EmojiParser.parseToUnicode(answer);
-        sendMessage(chatId, answer);
-        log.info("Todo list received by user: " + userRepository.findById(chatId));
+        List<InlineKeyboardButton> row = new ArrayList<>(2);
+        // кнопки несут ключ крайней задачи страницы: соседняя страница читается по индексу, без OFFSET
+        if (hasNewer)
+            row.add(donePageButton(MessageTemplates.LIST_PREVIOUS_BUTTON, "<", page.isEmpty() ? null : page.get(0)));
+        if (hasOlder) row.add(donePageButton(MessageTemplates.LIST_NEXT_BUTTON, ">", page.get(page.size() - 1)));
+        return new TodoListMessage(answer.toString(), new InlineKeyboardMarkup(List.of(row)));
+    }
+
+    // без задачи (страница пуста) - к началу истории
+    private static InlineKeyboardButton donePageButton(String text, String direction, DoneItem edge) {
+        InlineKeyboardButton button = new InlineKeyboardButton(text);
+        button.setCallbackData(edge == null ? "history:"
+                : "history:" + direction + ":" + edge.completedAt().getTime() + ":" + edge.id());
+        return button;
+    }
+
+    /**
+     * Поиск задач по словам из названия и описания: "/find молоко хлеб".
+     * Под ответом - кнопки, открывающие карточку найденной задачи
+     */
+    private void findCommandReceived(Long chatId, String text) {
+        int space = firstWhitespace(text);
+        String query = space < 0 ? "" : text.substring(space + 1).trim();
+        if (query.isEmpty()) {
+            sendMessage(chatId, "Введите слова для поиска после команды. Например: /find молоко");
+            return;
+        }
+        List<TodoSearchIndex.Match> matches = todoSearchIndex.search(chatId, query, SEARCH_RESULTS + 1);
+        if (matches.isEmpty()) {
+            sendMessage(chatId, "По запросу «" + query + "» задач не найдено");
+            return;
+        }
+        StringBuilder answer = new StringBuilder(64 + matches.size() * 48)
+                .append(MessageTemplates.SEARCH_HEADER);
+        List<List<InlineKeyboardButton>> rows = new ArrayList<>(SEARCH_RESULTS);
+        for (TodoSearchIndex.Match match : matches.subList(0, Math.min(SEARCH_RESULTS, matches.size()))) {
+            String title = match.title().length() > LIST_TITLE_LENGTH
+                    ? match.title().substring(0, LIST_TITLE_LENGTH) + '…' : match.title();
+            answer.append("• ").append(title).append('\n');
+            rows.add(List.of(taskButton(title, "open", match.id())));
+        }
+        if (matches.size() > SEARCH_RESULTS) answer.append("Показаны первые ").append(SEARCH_RESULTS).append(" задач");
+        sendMessage(chatId, answer.toString(), new InlineKeyboardMarkup(rows));
+        log.info("Search by: " + chatId + ", found: " + matches.size());
     }
 
     /**
      * Первый этап создания новой задачи
      */
     private void newTodoCommandReceived1(Long chatId) {
-        ChatState chatState = new ChatState();
         // Ждем ответ от пользователя (название задачи)
-        chatState.setExpectingTitle(true);
-        chatStates.put(chatId, chatState);
+        chatStates.put(chatId, new ChatState(ChatStage.NEW_TODO_TITLE));
         sendMessage(chatId, "Введите название задачи");
     }
 
     /**
-     * Второй этап создания новой задачи
+     * Второй этап создания новой задачи: получено название
      */
-    private void newTodoCommandReceived2(Long chatId, ChatState chatState, String messageText) {
-        // Если хочет отменить создание новой задачи
-        if (messageText.equals("Отменить")) {
-            chatStates.remove(chatId);
-            sendMessage(chatId, "Создание задачи отменено");
-            return;
-        }
+    private void newTodoCommandReceived2(Long chatId, ChatState chatState, Message message) {
+        chatState.setTitle(message.getText());
+        chatState.setStage(ChatStage.NEW_TODO_DESCRIPTION);
+        chatStates.put(chatId, chatState);
 
-        if (chatState.isExpectingTitle()) {
-            // Этот ответ ожидался как название задачи
-            chatState.setTitle(messageText);
-            chatState.setExpectingTitle(false);
-
-            // Теперь ожидаем описание задачи
-            sendMessage(chatId, "Введите описание задачи");
-        } else { // На этот раз получив все данные, создаем новую задачу и сохраняем
-            String title = chatState.getTitle();
-            // Создаем задачу, используя название и описание
-            todoService.createTodo(title, messageText, chatId);
-            // Очищаем состояние чата
-            chatStates.remove(chatId);
-            sendMessage(chatId, "Задача «" + title + "» создана!");
-            todoListCommandReceived(chatId);
-            log.info("New todo task by: " + userRepository.findById(chatId));
-        }
+        // Теперь ожидаем описание задачи
+        sendMessage(chatId, "Введите описание задачи");
+    }
+
+    /**
+     * Третий этап создания новой задачи: получено описание, создаем задачу и сохраняем
+     */
+    private void newTodoCommandReceived3(Long chatId, ChatState chatState, Message message) {
+        String title = chatState.getTitle();
+        // Создаем задачу, используя название и описание
+        todoService.createTodo(title, message.getText(), chatId);
+        // Очищаем состояние чата
+        chatStates.remove(chatId);
+        sendMessage(chatId, "Задача «" + title + "» создана!");
+        todoListCommandReceived(chatId);
+        log.info("New todo task by: " + chatId);
+    }
+
+    private void newTodoCancelled(Long chatId, ChatState chatState, Message message) {
+        chatStates.remove(chatId);
+        sendMessage(chatId, "Создание задачи отменено");
     }
 
     /**
      * Первичная регистрация пользователя для хранения данных
      */
     private void registerUser(Message msg) {
-        if (userRepository.findById(msg.getChatId()).isEmpty()) {
+        if (!userRepository.existsById(msg.getChatId())) {
             var chatId = msg.getChatId();
             var chat = msg.getChat();
 
@@ -485,54 +1023,49 @@ public class TelegramBot extends TelegramLongPollingBot {
      * Приветственное сообщение
      */
     private void startCommandReceived(long chatId, String name) {
-        String answer;
-        answer = EmojiParser.parseToUnicode(
-                "Привет, " + name + "! Я RemindMe7 :zap:\n" +
-                        "Я помогу тебе вести свой TODO-лист задач.\n\n" +
-                        "Ты будешь создавать задачи :pushpin:, а я буду:\n" +
-                        " - следить за их дедлайнами\n" +
-                        " - структурировать их по времени\n" +
-                        " - напоминать о важных :exclamation:\n"
-        );
-        sendMessage(chatId, answer);
-        answer = EmojiParser.parseToUnicode(
-                "Давай создадим твою первую задачу, " +
-                        "для этого нажми кнопку «Создать» на клавиатуре " +
-                        "или просто введи команду /new."
-        );
-        sendMessage(chatId, answer);
+        sendMessage(chatId, MessageTemplates.GREETING.render(name));
+        sendMessage(chatId, MessageTemplates.FIRST_TASK_HINT.text());
         log.info("Start command replied to user " + name);
     }
 
     /**
      * Логика ответов
      */
-    private void sendMessage(long chatId, String textToSend) {
-        SendMessage message = new SendMessage();
-        message.setChatId(String.valueOf(chatId));
-        message.setText(textToSend);
+    private CompletableFuture<Message> sendMessage(long chatId, String textToSend) {
+        return sendMessage(chatId, textToSend, OutboundMessageQueue.Priority.INTERACTIVE);
+    }
 
-        // Получаем состояние чата
+    /**
+     * Сообщение с inline-кнопками (вместо обычной клавиатуры)
+     */
+    private CompletableFuture<Message> sendMessage(long chatId, String textToSend, InlineKeyboardMarkup keyboard) {
+        SendMessage message = new SendMessage(String.valueOf(chatId), textToSend);
+        message.setReplyMarkup(keyboard);
+        return outboundQueue.submit(chatId, message, OutboundMessageQueue.Priority.INTERACTIVE);
+    }
+
+    /**
+     * Изменение ранее отправленного сообщения на месте (keyboard == null - без кнопок)
+     */
+    private void editMessage(long chatId, Integer messageId, String text, InlineKeyboardMarkup keyboard) {
+        EditMessageText edit = new EditMessageText();
+        edit.setChatId(String.valueOf(chatId));
+        edit.setMessageId(messageId);
+        edit.setText(text);
+        edit.setReplyMarkup(keyboard);
+        outboundQueue.submit(chatId, edit, OutboundMessageQueue.Priority.INTERACTIVE);
+    }
+
+    private CompletableFuture<Message> sendMessage(long chatId, String textToSend,
+                                                  OutboundMessageQueue.Priority priority) {
+        SendMessage message = new SendMessage(String.valueOf(chatId), textToSend);
+
+        // Клавиатура определяется этапом диалога; вне диалога - клавиатура по умолчанию
         ChatState chatState = chatStates.get(chatId);
+        keyboardSetups.setKeyboard(message, chatState != null ? chatState.getKeyboard() : ChatStage.Keyboard.DEFAULT);
 
-        // Если ждали ответ на изменение существующей задачи
-        if (chatState != null && chatState.isEditingTask()) {
-            // ставим клавиатуру изменений задачи
-            keyboardSetups.setEditTaskKeyboard(message);
-            // Если ждали ответ на создание новой задачи ставим клавиатуру с отменой действия
-        } else if (chatState != null)
-            keyboardSetups.setCancelKeyboard(message);
-            // иначе дефолтная клавиатура
-        else keyboardSetups.setDefaultKeyboard(message);
-        // Если изменяется дедлайн, то тоже клавиатура для отмены
-        if (chatState != null && chatState.isEditingDeadline()) keyboardSetups.setCancelKeyboard(message);
-
-        // Запускаем отправку подготовленного сообщения и клавиатуры
-        try {
-            execute(message);
-        } catch (TelegramApiException e) {
-            log.error("Error occurred: " + e.getMessage());
-        }
+        // Ставим подготовленное сообщение и клавиатуру в очередь отправки
+        return outboundQueue.submit(chatId, message, priority);
     }
 
     /*// Храним дату последней проверки дедлайнов, чтобы знать, когда нужно снова проверять
@@ -543,27 +1076,17 @@ public class TelegramBot extends TelegramLongPollingBot {
 
         /*// Проверяем, прошло ли уже достаточно времени с момента последней проверки (например, 1 день)
         if (currentDate.isAfter(lastCheckDate.plusDays(1))) {*/
-            // Получаем все задачи с дедлайном
-            List<Todo> todosWithDeadline = todoRepository.findAllByDeadlineIsNotNull();
-            // Проверяем каждую задачу
-            for (Todo todo : todosWithDeadline) {
-                LocalDate deadline = todo.getDeadline();
-
-                // Если дедлайн через 1 день (обычная задача)
-                if (deadline.equals(currentDate.plusDays(1))) {
-                    // Отправляем напоминание пользователю
-                    Long chatId = todo.getUser().getChatId();
-                    sendMessage(chatId, "У вас есть задача «" + todo.getTitle() + "», " +
-                            "которая завтра должна быть выполнена!");
-                }
-                // Если дедлайн через 2 дня (важные задачи)
-                if (todo.getImportant() && deadline.equals(currentDate.plusDays(2))) {
-                    // Отправляем отдельное уведомление для важных задач
-                    Long chatId = todo.getUser().getChatId();
-                    sendMessage(chatId, "Внимание! У вас есть важная задача «" + todo.getTitle() + "», " +
-                            "которая должна быть выполнена через 2 дня!");
-                }
-            }
+            // Читаем из БД только задачи на завтра и важные на послезавтра (по порядку пользователей)
+            ReminderDigest digest = newReminderDigest();
+            todoService.forEachDueReminder(currentDate, todo -> {
+                // Пользователи со своим расписанием получают уведомления в scheduledCustomReminders()
+                if (notifyScheduleIndex.hasCustomSchedule(todo.chatId())) return;
+                // у повторяющихся задач дата напоминания - текущее повторение, вычисленное по правилу
+                long daysLeft = ChronoUnit.DAYS.between(currentDate, todo.dueDate(currentDate));
+                if (daysLeft == 1 || (todo.important() && daysLeft == 2)) digest.add(todo, daysLeft);
+            });
+            digest.finish();
+            botMetrics.recordReminders("daily", digest.getMessages());
             log.warn("checkDeadlines() was executed");
 
             /*// Обновляем дату последней проверки
@@ -571,10 +1094,46 @@ public class TelegramBot extends TelegramLongPollingBot {
         }*/
     }
 
+    /**
+     * Уведомления для пользователей со своим расписанием, у которых время отправки - текущая минута
+     */
+    public void checkCustomDeadlines(LocalDate currentDate, int minuteOfDay) {
+        Set<Long> chatIds = notifyScheduleIndex.dueAt(minuteOfDay);
+        if (chatIds.isEmpty()) return;
+
+        int maxDaysBefore = 0;
+        for (Long chatId : chatIds)
+            maxDaysBefore = Math.max(maxDaysBefore, notifyScheduleIndex.scheduleOf(chatId).getMaxDaysBefore());
+
+        ReminderDigest digest = newReminderDigest();
+        todoService.forEachReminderOfUsers(chatIds, currentDate, maxDaysBefore, todo -> {
+            long daysLeft = ChronoUnit.DAYS.between(currentDate, todo.dueDate(currentDate));
+            if (notifyScheduleIndex.scheduleOf(todo.chatId()).isDue(todo.important(), daysLeft))
+                digest.add(todo, daysLeft);
+        });
+        digest.finish();
+        botMetrics.recordReminders("custom", digest.getMessages());
+        log.info("checkCustomDeadlines() was executed for " + chatIds.size() + " users");
+    }
+
+    /**
+     * Напоминания одним сообщением на пользователя или (bot.reminders.digest=false) на каждую задачу
+     */
+    private ReminderDigest newReminderDigest() {
+        return new ReminderDigest(config.isReminderDigest(),
+                (chatId, text) -> sendMessage(chatId, text, OutboundMessageQueue.Priority.BULK));
+    }
+
     // Помечаем метод как запускаемый по расписанию
     @Scheduled(cron = "0 0 12 * * ?") // Запускать ежедневно в 12:00
     public void scheduledCheckDeadlines() {
         checkDeadlines();
     }
 
+    @Scheduled(cron = "0 * * * * ?") // Запускать каждую минуту
+    public void scheduledCustomReminders() {
+        LocalTime now = LocalTime.now();
+        checkCustomDeadlines(LocalDate.now(), now.getHour() * 60 + now.getMinute());
+    }
+
 }
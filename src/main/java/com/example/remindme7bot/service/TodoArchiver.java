@@ -0,0 +1,51 @@
+package com.example.remindme7bot.service;
+
+import com.example.remindme7bot.config.BotConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Фоновый перенос выполненных задач в архив пачками, чтобы в todoDataTable и её индексах
+ * оставались только текущие задачи. Каждая пачка - отдельная короткая транзакция
+ */
+@Slf4j
+@Component
+public class TodoArchiver {
+
+    @Autowired
+    private BotConfig config;
+    @Autowired
+    private TodoService todoService;
+    @Autowired
+    private BotMetrics botMetrics;
+    @Autowired
+    private InboundLimiter inboundLimiter;
+
+    @Scheduled(fixedDelayString = "${bot.archive.interval-seconds:60}", timeUnit = TimeUnit.SECONDS)
+    public void archiveCompleted() {
+        // перенос может подождать: при перегрузке база нужна обработке входящих обновлений
+        if (inboundLimiter.isOverloaded()) {
+            log.info("Archiving deferred: update queue is overloaded");
+            return;
+        }
+        int batchSize = config.getArchiveBatchSize();
+        long archived = 0;
+        int moved;
+        try {
+            do {
+                moved = todoService.archiveCompleted(batchSize);
+                archived += moved;
+            } while (moved == batchSize);
+        } catch (RuntimeException e) {
+            botMetrics.recordError("archive", e);
+            log.error("Error occurred: " + e.getMessage());
+        }
+        if (archived == 0) return;
+        botMetrics.recordArchived(archived);
+        log.info("Completed todos archived: " + archived);
+    }
+}
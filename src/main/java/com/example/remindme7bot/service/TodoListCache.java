@@ -0,0 +1,66 @@
+package com.example.remindme7bot.service;
+
+import com.example.remindme7bot.config.BotConfig;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кэш готовой первой страницы списка задач по чатам.
+ * Сбрасывается TodoService при любом изменении, влияющем на список, и целиком - в начале нового дня
+ */
+@Component
+public class TodoListCache {
+
+    private final Map<Long, TodoListMessage> lists;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public TodoListCache(BotConfig config) {
+        int maxSize = config.getTodoListCacheSize();
+        this.lists = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, TodoListMessage> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public synchronized TodoListMessage get(Long chatId) {
+        TodoListMessage list = lists.get(chatId);
+        if (list == null) misses.incrementAndGet();
+        else hits.incrementAndGet();
+        return list;
+    }
+
+    public synchronized void put(Long chatId, TodoListMessage list) {
+        lists.put(chatId, list);
+    }
+
+    public synchronized void invalidate(Long chatId) {
+        lists.remove(chatId);
+    }
+
+    /**
+     * Сброс всех списков в полночь: даты повторяющихся задач вычисляются от текущего дня
+     */
+    @Scheduled(cron = "0 0 0 * * ?")
+    public synchronized void clear() {
+        lists.clear();
+    }
+
+    public synchronized int size() {
+        return lists.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.remindme7bot.service;
+
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+
+/**
+ * Готовая страница списка задач: текст и кнопки перехода между страницами (null, если страница одна)
+ */
+public record TodoListMessage(String text, InlineKeyboardMarkup keyboard) {
+}
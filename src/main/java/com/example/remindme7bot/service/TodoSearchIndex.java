@@ -0,0 +1,195 @@
+package com.example.remindme7bot.service;
+
+import com.example.remindme7bot.config.BotConfig;
+import com.example.remindme7bot.model.TodoSearchItem;
+import com.example.remindme7bot.repository.TodoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Поиск по названиям и описаниям задач без запросов к БД: для каждого пользователя в памяти
+ * хранится инвертированный индекс "слово -> задачи". Индекс строится при первом поиске,
+ * дальше обновляется TodoService при изменениях задач и выбрасывается, если им давно не пользовались
+ */
+@Slf4j
+@Component
+public class TodoSearchIndex {
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    /**
+     * Найденная задача: id и название для вывода
+     */
+    public record Match(Long id, String title) {
+    }
+
+    @Autowired
+    private TodoRepository todoRepository;
+
+    private final long idleTtlMillis;
+    // порядок доступа: в начале - индексы, которыми дольше всего не пользовались
+    private final LinkedHashMap<Long, UserIndex> indexes;
+
+    public TodoSearchIndex(BotConfig config) {
+        this.idleTtlMillis = TimeUnit.MINUTES.toMillis(config.getSearchIdleTtlMinutes());
+        int maxUsers = config.getSearchMaxUsers();
+        this.indexes = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, UserIndex> eldest) {
+                return size() > maxUsers;
+            }
+        };
+    }
+
+    /**
+     * Задачи, в названии или описании которых есть все слова запроса (слово совпадает с началом слова задачи).
+     * Не больше limit задач, в порядке создания
+     */
+    public List<Match> search(Long chatId, String query, int limit) {
+        List<String> words = new ArrayList<>(tokens(query));
+        if (words.isEmpty()) return List.of();
+        UserIndex index = indexOf(chatId);
+        synchronized (index) {
+            return index.search(words, limit);
+        }
+    }
+
+    /**
+     * Новая или изменённая задача. Если индекс пользователя ещё не построен, ничего не делается
+     */
+    public void put(Long chatId, Long id, String title, String description) {
+        UserIndex index = loaded(chatId);
+        if (index == null) return;
+        synchronized (index) {
+            index.put(id, title, description);
+        }
+    }
+
+    public void remove(Long chatId, Long id) {
+        UserIndex index = loaded(chatId);
+        if (index == null) return;
+        synchronized (index) {
+            index.remove(id);
+        }
+    }
+
+    /**
+     * Сброс индекса пользователя; при следующем поиске он будет построен заново
+     */
+    public synchronized void invalidate(Long chatId) {
+        indexes.remove(chatId);
+    }
+
+    public synchronized int size() {
+        return indexes.size();
+    }
+
+    private synchronized UserIndex loaded(Long chatId) {
+        UserIndex index = indexes.get(chatId);
+        if (index != null) index.lastAccess = System.currentTimeMillis();
+        return index;
+    }
+
+    private UserIndex indexOf(Long chatId) {
+        UserIndex index = loaded(chatId);
+        if (index != null) return index;
+        // задачи читаются вне блокировки, чтобы построение индекса не задерживало поиск в других чатах
+        UserIndex built = new UserIndex();
+        for (TodoSearchItem item : todoRepository.findSearchItems(chatId))
+            built.put(item.id(), item.title(), item.description());
+        synchronized (this) {
+            index = indexes.putIfAbsent(chatId, built);
+        }
+        return index != null ? index : built;
+    }
+
+    /**
+     * Выбрасывание индексов, которыми давно не пользовались
+     */
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.MINUTES)
+    public void removeIdle() {
+        long before = System.currentTimeMillis() - idleTtlMillis;
+        int removed = 0;
+        synchronized (this) {
+            Iterator<UserIndex> iterator = indexes.values().iterator();
+            while (iterator.hasNext()) {
+                UserIndex index = iterator.next();
+                if (index.lastAccess >= before) break;
+                iterator.remove();
+                removed++;
+            }
+        }
+        if (removed > 0) log.info("Idle search indexes removed: " + removed);
+    }
+
+    /**
+     * Слова текста в нижнем регистре, "ё" приравнивается к "е"
+     */
+    static Set<String> tokens(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) return tokens;
+        for (String token : SEPARATORS.split(text.toLowerCase(Locale.ROOT).replace('ё', 'е')))
+            if (!token.isEmpty()) tokens.add(token);
+        return tokens;
+    }
+
+    /**
+     * Индекс задач одного пользователя
+     */
+    private static class UserIndex {
+        // слово -> id задач; сортировка по слову нужна для поиска по началу слова
+        final NavigableMap<String, Set<Long>> postings = new TreeMap<>();
+        final Map<Long, Document> documents = new HashMap<>();
+        long lastAccess = System.currentTimeMillis();
+
+        void put(Long id, String title, String description) {
+            remove(id);
+            Set<String> tokens = tokens(title);
+            tokens.addAll(tokens(description));
+            documents.put(id, new Document(title, tokens));
+            for (String token : tokens) postings.computeIfAbsent(token, key -> new HashSet<>()).add(id);
+        }
+
+        void remove(Long id) {
+            Document document = documents.remove(id);
+            if (document == null) return;
+            for (String token : document.tokens()) {
+                Set<Long> ids = postings.get(token);
+                ids.remove(id);
+                if (ids.isEmpty()) postings.remove(token);
+            }
+        }
+
+        List<Match> search(List<String> words, int limit) {
+            // начинаем с самого редкого слова, остальные слова только отсеивают кандидатов
+            List<Set<Long>> matches = new ArrayList<>(words.size());
+            for (String word : words) {
+                Set<Long> ids = new HashSet<>();
+                for (Set<Long> tokenIds : postings.subMap(word, true, word + Character.MAX_VALUE, false).values())
+                    ids.addAll(tokenIds);
+                if (ids.isEmpty()) return List.of();
+                matches.add(ids);
+            }
+            matches.sort(Comparator.comparingInt(Set::size));
+            List<Long> ids = new ArrayList<>(matches.get(0));
+            for (int i = 1; i < matches.size(); i++) ids.retainAll(matches.get(i));
+            Collections.sort(ids);
+
+            List<Match> result = new ArrayList<>(Math.min(limit, ids.size()));
+            for (Long id : ids) {
+                if (result.size() == limit) break;
+                result.add(new Match(id, documents.get(id).title()));
+            }
+            return result;
+        }
+    }
+
+    private record Document(String title, Set<String> tokens) {
+    }
+}
@@ -1,32 +1,352 @@
 package com.example.remindme7bot.service;
 
+import com.example.remindme7bot.model.DoneItem;
+import com.example.remindme7bot.model.Recurrence;
 import com.example.remindme7bot.model.Todo;
+import com.example.remindme7bot.model.TodoListItem;
+import com.example.remindme7bot.model.TodoPage;
+import com.example.remindme7bot.model.TodoReminderView;
 import com.example.remindme7bot.model.User;
+import com.example.remindme7bot.repository.ArchivedTodoRepository;
 import com.example.remindme7bot.repository.TodoRepository;
 import com.example.remindme7bot.repository.UserRepository;
-import org.jvnet.hk2.annotations.Service;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Component
 public class TodoService {
 
+    private static final Comparator<DoneItem> DONE_ORDER = Comparator
+            .comparing(DoneItem::completedAt, Comparator.reverseOrder())
+            .thenComparing(DoneItem::id, Comparator.reverseOrder());
+
     @Autowired
     private TodoRepository todoRepository;
 
+    @Autowired
+    private ArchivedTodoRepository archivedTodoRepository;
+
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private TodoListCache todoListCache;
+
+    @Autowired
+    private TodoSearchIndex todoSearchIndex;
+
     public Todo createTodo(String name, String description, Long chatId) {
-        User user = userRepository.findById(chatId).get();
+        // ссылка на пользователя без запроса к таблице пользователей
+        User user = userRepository.getReferenceById(chatId);
         Todo todo = new Todo();
         todo.setTitle(name);
         todo.setDescription(description);
         todo.setUser(user);
-        return todoRepository.save(todo);
+        todo = todoRepository.save(todo);
+        todoListCache.invalidate(chatId);
+        todoSearchIndex.put(chatId, todo.getId(), name, description);
+        return todo;
+    }
+
+    /**
+     * Создание нескольких задач пользователя (импорт) за несколько обращений к БД (INSERT пакетами)
+     */
+    @Transactional
+    public List<Todo> createTodos(Long chatId, Collection<Todo> todos) {
+        User user = userRepository.getReferenceById(chatId);
+        todos.forEach(todo -> todo.setUser(user));
+        List<Todo> saved = new ArrayList<>();
+        todoRepository.saveAll(todos).forEach(saved::add);
+        todoListCache.invalidate(chatId);
+        saved.forEach(todo -> todoSearchIndex.put(chatId, todo.getId(), todo.getTitle(), todo.getDescription()));
+        return saved;
+    }
+
+    /**
+     * Сохранение изменений нескольких существующих задач: один SELECT и пакет UPDATE
+     */
+    @Transactional
+    public void updateTodos(Collection<Todo> todos) {
+        // загружаем задачи одним запросом, чтобы merge не делал SELECT для каждой
+        todoRepository.findAllById(todos.stream().map(Todo::getId).toList());
+        todoRepository.saveAll(todos);
+        todos.stream().map(todo -> todo.getUser().getChatId()).distinct().forEach(todoListCache::invalidate);
+        todos.forEach(todo ->
+                todoSearchIndex.put(todo.getUser().getChatId(), todo.getId(), todo.getTitle(), todo.getDescription()));
+    }
+
+    @Transactional
+    public Todo updateTitle(Long taskId, String title) {
+        Todo todo = todoRepository.findById(taskId).get();
+        todo.setTitle(title);
+        todoListCache.invalidate(todo.getUser().getChatId());
+        todoSearchIndex.put(todo.getUser().getChatId(), taskId, title, todo.getDescription());
+        return todo;
+    }
+
+    /**
+     * Описание в списке задач не выводится, поэтому кэш списка не сбрасывается
+     */
+    @Transactional
+    public Todo updateDescription(Long taskId, String description) {
+        Todo todo = todoRepository.findById(taskId).get();
+        todo.setDescription(description);
+        todoSearchIndex.put(todo.getUser().getChatId(), taskId, todo.getTitle(), description);
+        return todo;
+    }
+
+    @Transactional
+    public Todo updateDeadline(Long taskId, LocalDate deadline) {
+        Todo todo = todoRepository.findById(taskId).get();
+        todo.setDeadline(deadline);
+        todoListCache.invalidate(todo.getUser().getChatId());
+        return todo;
+    }
+
+    /**
+     * Правило повторения задачи (null - задача не повторяется). Задача без дедлайна получает
+     * дедлайн - ближайшее повторение начиная с сегодняшнего дня
+     */
+    @Transactional
+    public Todo updateRecurrence(Long taskId, Recurrence recurrence) {
+        Todo todo = todoRepository.findById(taskId).get();
+        if (recurrence == null) {
+            todo.setRecurrence(null);
+        } else {
+            LocalDate today = LocalDate.now();
+            LocalDate base = todo.getDeadline() != null ? todo.getDeadline() : today;
+            recurrence = recurrence.anchoredAt(base);
+            todo.setRecurrence(recurrence.toString());
+            if (todo.getDeadline() == null) todo.setDeadline(recurrence.firstOnOrAfter(today, today));
+        }
+        todoListCache.invalidate(todo.getUser().getChatId());
+        return todo;
+    }
+
+    /**
+     * Переключение признака "важная". Возвращает задачу с новым значением признака
+     * (null, если у пользователя нет такой задачи)
+     */
+    @Transactional
+    public Todo toggleImportant(Long chatId, Long taskId) {
+        Todo todo = todoRepository.findByIdAndUser_ChatId(taskId, chatId).orElse(null);
+        if (todo == null) return null;
+        todo.setImportant(!todo.getImportant());
+        todoListCache.invalidate(chatId);
+        return todo;
+    }
+
+    /**
+     * Первая страница списка задач
+     */
+    @Transactional
+    public TodoPage getFirstPage(Long chatId, int pageSize) {
+        moveOverdueRecurring(chatId, LocalDate.now());
+        return forwardPage(chatId, null, null, 1, pageSize);
+    }
+
+    /**
+     * Перенос дедлайна пропущенных повторяющихся задач на текущее повторение, чтобы список
+     * был упорядочен по настоящим датам. Новые строки не создаются
+     */
+    private void moveOverdueRecurring(Long chatId, LocalDate today) {
+        for (Todo todo : todoRepository.findOverdueRecurring(chatId, today))
+            todo.setDeadline(Recurrence.parse(todo.getRecurrence()).occurrence(todo.getDeadline(), today));
+    }
+
+    /**
+     * Страница, следующая за задачей (deadline, id); position - номер первой задачи новой страницы
+     */
+    @Transactional
+    public TodoPage getPageAfter(Long chatId, LocalDate deadline, Long id, int position, int pageSize) {
+        TodoPage page = forwardPage(chatId, deadline, id, position, pageSize);
+        // задачи после курсора могли быть удалены - тогда показываем начало списка
+        return page.items().isEmpty() ? forwardPage(chatId, null, null, 1, pageSize) : page;
+    }
+
+    /**
+     * Страница, предшествующая задаче (deadline, id); position - номер первой задачи новой страницы
+     */
+    @Transactional
+    public TodoPage getPageBefore(Long chatId, LocalDate deadline, Long id, int position, int pageSize) {
+        List<TodoListItem> items = new ArrayList<>(pageSize);
+        if (deadline == null) {
+            items.addAll(todoRepository.findUndatedBefore(chatId, id, PageRequest.of(0, pageSize)));
+            if (items.size() < pageSize)
+                items.addAll(todoRepository.findDatedLast(chatId, PageRequest.of(0, pageSize - items.size())));
+        } else {
+            items.addAll(todoRepository.findDatedBefore(chatId, deadline, id, PageRequest.of(0, pageSize)));
+        }
+        // неполная страница - значит дошли до начала списка (или он изменился)
+        if (items.size() < pageSize || position <= 1) return forwardPage(chatId, null, null, 1, pageSize);
+        Collections.reverse(items);
+        renumber(chatId, items, position);
+        return new TodoPage(items, position, position > 1, true);
+    }
+
+    /**
+     * Страница после курсора; null в id - с начала списка. Читается на одну задачу больше, чтобы знать, есть ли продолжение
+     */
+    private TodoPage forwardPage(Long chatId, LocalDate deadline, Long id, int position, int pageSize) {
+        int limit = pageSize + 1;
+        List<TodoListItem> items = new ArrayList<>(limit);
+        if (id == null || deadline != null) {
+            items.addAll(id == null
+                    ? todoRepository.findDatedFirst(chatId, PageRequest.of(0, limit))
+                    : todoRepository.findDatedAfter(chatId, deadline, id, PageRequest.of(0, limit)));
+            if (items.size() < limit)
+                items.addAll(todoRepository.findUndatedAfter(chatId, 0L, PageRequest.of(0, limit - items.size())));
+        } else {
+            items.addAll(todoRepository.findUndatedAfter(chatId, id, PageRequest.of(0, limit)));
+        }
+        boolean hasNext = items.size() > pageSize;
+        if (hasNext) items.remove(pageSize);
+        renumber(chatId, items, position);
+        return new TodoPage(items, position, position > 1, hasNext);
+    }
+
+    /**
+     * Номера задач страницы по их позиции в списке. В БД записываются только изменившиеся номера
+     */
+    private void renumber(Long chatId, List<TodoListItem> items, int firstPosition) {
+        Map<Long, Integer> changed = new HashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            Integer seqNumber = firstPosition + i;
+            TodoListItem item = items.get(i);
+            if (!seqNumber.equals(item.seqNumber())) {
+                changed.put(item.id(), seqNumber);
+                items.set(i, item.withSeqNumber(seqNumber));
+            }
+        }
+        if (changed.isEmpty()) return;
+        todoRepository.clearSeqNumbers(chatId, firstPosition, firstPosition + items.size() - 1,
+                items.stream().map(TodoListItem::id).toList());
+        for (Todo todo : todoRepository.findAllById(changed.keySet()))
+            todo.setSeqNumber(changed.get(todo.getId()));
+    }
+
+    /**
+     * Выполнение задачи пользователя: у обычной задачи выставляется время выполнения (в архив её перенесёт
+     * archiveCompleted), у повторяющейся дедлайн переносится на следующее повторение. В обоих случаях -
+     * один UPDATE. Возвращает задачу или null, если у пользователя нет такой задачи
+     */
+    @Transactional
+    public Todo completeTodo(Long chatId, Long id) {
+        Todo todo = todoRepository.findByIdAndUser_ChatId(id, chatId).orElse(null);
+        if (todo == null) return null;
+        if (todo.getRecurrence() == null) {
+            todo.setCompletedAt(new Timestamp(System.currentTimeMillis()));
+            // номер освобождается сразу, чтобы "/N" не открывал выполненную задачу
+            todo.setSeqNumber(null);
+            todoSearchIndex.remove(chatId, id);
+        } else {
+            Recurrence recurrence = Recurrence.parse(todo.getRecurrence());
+            LocalDate occurrence = recurrence.occurrence(todo.getDeadline(), LocalDate.now());
+            todo.setDeadline(recurrence.following(todo.getDeadline(), occurrence));
+        }
+        todoListCache.invalidate(chatId);
+        return todo;
+    }
+
+    /**
+     * Страница истории выполненных задач, от новых к старым; null в id - с начала истории.
+     * Читаются и архив, и задачи, которые ещё не успели в него перенести
+     */
+    @Transactional(readOnly = true)
+    public List<DoneItem> getDonePage(Long chatId, Timestamp completedAt, Long id, int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        // сначала рабочая таблица, затем архив: задача, перенесённая между запросами, попадёт в оба ответа, но не потеряется
+        return mergeDone(id == null
+                        ? todoRepository.findDoneFirst(chatId, page)
+                        : todoRepository.findDoneBefore(chatId, completedAt, id, page),
+                id == null
+                        ? archivedTodoRepository.findDoneFirst(chatId, page)
+                        : archivedTodoRepository.findDoneBefore(chatId, completedAt, id, page),
+                DONE_ORDER, limit);
+    }
+
+    /**
+     * Не более limit выполненных задач, более новых, чем задача (completedAt, id), - ближайшие к ней;
+     * порядок тот же, что в getDonePage (от новых к старым)
+     */
+    @Transactional(readOnly = true)
+    public List<DoneItem> getNewerDonePage(Long chatId, Timestamp completedAt, Long id, int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        List<DoneItem> items = mergeDone(todoRepository.findDoneAfter(chatId, completedAt, id, page),
+                archivedTodoRepository.findDoneAfter(chatId, completedAt, id, page), DONE_ORDER.reversed(), limit);
+        Collections.reverse(items);
+        return items;
+    }
+
+    private static List<DoneItem> mergeDone(List<DoneItem> todos, List<DoneItem> archived,
+                                            Comparator<DoneItem> order, int limit) {
+        List<DoneItem> items = new ArrayList<>(todos);
+        Set<Long> ids = new HashSet<>();
+        items.forEach(item -> ids.add(item.id()));
+        for (DoneItem item : archived) {
+            if (ids.add(item.id())) items.add(item);
+        }
+        items.sort(order);
+        return items.size() > limit ? new ArrayList<>(items.subList(0, limit)) : items;
+    }
+
+    /**
+     * Очередная пачка пропущенных повторяющихся задач всех пользователей: их дедлайн нужно перенести
+     * на текущее повторение (RecurrenceCatchUp) и сохранить через updateTodos
+     */
+    @Transactional(readOnly = true)
+    public List<Todo> getOverdueRecurring(LocalDate today, int batchSize) {
+        return todoRepository.findOverdueRecurring(today, PageRequest.of(0, batchSize));
+    }
+
+    /**
+     * Перенос очередной пачки выполненных задач в архив (INSERT ... SELECT и DELETE в одной транзакции).
+     * Возвращает количество перенесённых задач
+     */
+    @Transactional
+    public int archiveCompleted(int batchSize) {
+        List<Long> ids = todoRepository.findCompletedIds(PageRequest.of(0, batchSize));
+        if (ids.isEmpty()) return 0;
+        archivedTodoRepository.copyFromTodos(ids);
+        return todoRepository.deleteAllByIds(ids);
+    }
+
+    /**
+     * Обход задач, о которых нужно напомнить сегодня, без загрузки их всех в память
+     */
+    @Transactional(readOnly = true)
+    public void forEachDueReminder(LocalDate today, Consumer<TodoReminderView> consumer) {
+        try (Stream<TodoReminderView> reminders =
+                     todoRepository.streamDueReminders(today.plusDays(1), today.plusDays(2))) {
+            reminders.forEach(consumer);
+        }
     }
 
-    public void completeTodo(Long id) {
-        todoRepository.deleteById(id);
+    /**
+     * Обход задач указанных пользователей с дедлайном в ближайшие maxDaysBefore дней
+     */
+    @Transactional(readOnly = true)
+    public void forEachReminderOfUsers(Collection<Long> chatIds, LocalDate today, int maxDaysBefore,
+                                       Consumer<TodoReminderView> consumer) {
+        try (Stream<TodoReminderView> reminders =
+                     todoRepository.streamRemindersForUsers(chatIds, today, today.plusDays(maxDaysBefore))) {
+            reminders.forEach(consumer);
+        }
     }
 }
@@ -0,0 +1,67 @@
+package com.example.remindme7bot.service;
+
+/**
+ * Простой потокобезопасный "token bucket": ведро ёмкостью capacity,
+ * пополняемое со скоростью ratePerSecond токенов в секунду.
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucket(double ratePerSecond, double capacity) {
+        this.capacity = capacity;
+        this.tokensPerNano = ratePerSecond / 1_000_000_000d;
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Забрать cost токенов, если они есть
+     */
+    public synchronized boolean tryAcquire(double cost) {
+        refill();
+        if (tokens < cost) return false;
+        tokens -= cost;
+        return true;
+    }
+
+    public boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    /**
+     * Через сколько наносекунд в ведре накопится cost токенов (0 - уже есть)
+     */
+    public synchronized long nanosUntilAvailable(double cost) {
+        refill();
+        if (tokens >= cost) return 0;
+        return (long) Math.ceil((cost - tokens) / tokensPerNano);
+    }
+
+    /**
+     * Дождаться и забрать один токен
+     */
+    public void acquire() throws InterruptedException {
+        while (!tryAcquire(1)) {
+            long waitNanos = nanosUntilAvailable(1);
+            if (waitNanos > 0) Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+        }
+    }
+
+    /**
+     * Ведро полное (им давно не пользовались)
+     */
+    public synchronized boolean isFull() {
+        refill();
+        return tokens >= capacity;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+    }
+}
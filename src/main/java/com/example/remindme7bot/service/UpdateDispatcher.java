@@ -0,0 +1,113 @@
+package com.example.remindme7bot.service;
+
+import com.example.remindme7bot.config.BotConfig;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Распределение входящих обновлений по потокам.
+ * Обновления одного чата всегда попадают в одну и ту же очередь (и выполняются по порядку),
+ * обновления разных чатов обрабатываются параллельно.
+ */
+@Slf4j
+@Component
+// останавливается раньше очереди отправки: ответы на дорабатываемые при остановке обновления должны уйти
+@DependsOn("outboundMessageQueue")
+public class UpdateDispatcher {
+
+    private final ExecutorService[] stripes;
+    // зависимость через конструктор: диспетчер останавливается раньше и позиция сохраняется после очереди
+    private final UpdateTracker updateTracker;
+    // количество обновлений, принятых в работу, но ещё не обработанных
+    private final AtomicInteger queueDepth = new AtomicInteger();
+
+    public UpdateDispatcher(BotConfig config, UpdateTracker updateTracker) {
+        this.updateTracker = updateTracker;
+        int parallelism = config.getDispatcherParallelism() > 0
+                ? config.getDispatcherParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("update-dispatcher-");
+        stripes = new ExecutorService[parallelism];
+        for (int i = 0; i < parallelism; i++) {
+            stripes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(), threadFactory);
+        }
+        log.info("Update dispatcher started with parallelism " + parallelism);
+    }
+
+    /**
+     * Передача обновления на обработку в поток, закреплённый за чатом.
+     * Повторная доставка (после перезапуска или повтора webhook) отбрасывается, чтобы команда не выполнилась дважды.
+     * Обновление, не прошедшее admission, считается обработанным
+     */
+    public void dispatch(Update update, Predicate<Update> admission, Consumer<Update> handler) {
+        if (!updateTracker.accept(update)) return;
+        if (!admission.test(update)) {
+            updateTracker.complete(update);
+            return;
+        }
+        Long chatId = chatIdOf(update);
+        ExecutorService stripe = stripes[stripeOf(chatId)];
+        queueDepth.incrementAndGet();
+        stripe.execute(() -> {
+            try {
+                handler.accept(update);
+            } catch (Exception e) {
+                log.error("Error occurred while handling update " + update.getUpdateId()
+                        + " from chat " + chatId + ": " + e.getMessage(), e);
+            } finally {
+                updateTracker.complete(update);
+                queueDepth.decrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Текущее количество обновлений в очередях (включая обрабатываемые)
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    public int getParallelism() {
+        return stripes.length;
+    }
+
+    private int stripeOf(Long chatId) {
+        if (chatId == null) return 0;
+        // перемешиваем биты, чтобы соседние chatId не скапливались в одной очереди
+        long h = chatId * 0x9E3779B97F4A7C15L;
+        return Math.floorMod((int) (h ^ (h >>> 32)), stripes.length);
+    }
+
+    static Long chatIdOf(Update update) {
+        if (update.hasMessage()) return update.getMessage().getChatId();
+        if (update.hasCallbackQuery() && update.getCallbackQuery().getMessage() != null)
+            return update.getCallbackQuery().getMessage().getChatId();
+        return null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ExecutorService stripe : stripes) stripe.shutdown();
+        try {
+            for (ExecutorService stripe : stripes) {
+                if (!stripe.awaitTermination(10, TimeUnit.SECONDS)) stripe.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
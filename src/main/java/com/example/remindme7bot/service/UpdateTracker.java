@@ -0,0 +1,96 @@
+package com.example.remindme7bot.service;
+
+import com.example.remindme7bot.model.UpdateOffset;
+import com.example.remindme7bot.repository.UpdateOffsetRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+/**
+ * Учёт обработанных обновлений: повторно доставленные Telegram обновления (после перезапуска
+ * или повтора webhook) отбрасываются, позиция обработки сохраняется в БД.
+ * Запись в БД идёт раз в bot.updates.flush-interval-ms и при остановке, а не на каждое обновление
+ */
+@Slf4j
+@Component
+public class UpdateTracker {
+
+    @Autowired
+    private UpdateOffsetRepository updateOffsetRepository;
+
+    @Autowired
+    private BotMetrics botMetrics;
+
+    private UpdateWindow window = new UpdateWindow(0);
+    private boolean dirty;
+
+    @PostConstruct
+    public synchronized void load() {
+        UpdateOffset offset = updateOffsetRepository.findById(UpdateOffset.ID).orElse(null);
+        if (offset == null) return;
+        window = new UpdateWindow(offset.getLastUpdateId());
+        if (offset.getProcessed() != null) window.restoreCompleted(offset.getProcessed());
+        log.info("Update offset restored: " + offset.getLastUpdateId());
+    }
+
+    /**
+     * Принятие обновления в работу. false - обновление уже обрабатывалось и должно быть пропущено
+     */
+    public boolean accept(Update update) {
+        boolean accepted;
+        synchronized (this) {
+            accepted = window.accept(update.getUpdateId());
+        }
+        if (!accepted) {
+            log.info("Duplicate update skipped: " + update.getUpdateId());
+            botMetrics.recordDuplicateUpdate();
+        }
+        return accepted;
+    }
+
+    public synchronized void complete(Update update) {
+        window.complete(update.getUpdateId());
+        dirty = true;
+    }
+
+    /**
+     * Последний update_id, до которого (включительно) все обновления обработаны
+     */
+    public synchronized long getLastUpdateId() {
+        return window.getWatermark();
+    }
+
+    @Scheduled(fixedDelayString = "${bot.updates.flush-interval-ms:1000}")
+    public void flush() {
+        UpdateOffset offset = new UpdateOffset();
+        synchronized (this) {
+            if (!dirty) return;
+            dirty = false;
+            offset.setId(UpdateOffset.ID);
+            offset.setLastUpdateId(window.getWatermark());
+            offset.setProcessed(window.completedBits());
+        }
+        try {
+            updateOffsetRepository.save(offset);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                dirty = true;
+            }
+            log.error("Error occurred while saving update offset: " + e.getMessage());
+            botMetrics.recordError("update_offset", e);
+        }
+    }
+
+    /**
+     * Вызывается после остановки UpdateDispatcher (он зависит от этого компонента),
+     * поэтому позиция сохраняется уже после обработки всех принятых обновлений
+     */
+    @PreDestroy
+    public void stop() {
+        flush();
+    }
+}
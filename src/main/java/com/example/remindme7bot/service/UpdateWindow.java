@@ -0,0 +1,104 @@
+package com.example.remindme7bot.service;
+
+import java.util.Arrays;
+
+/**
+ * Скользящее окно последних update_id на кольцевых битовых массивах: проверка повтора - O(1).
+ * watermark - последний id, до которого (включительно) все обновления обработаны; биты описывают
+ * следующие SIZE id. Не потокобезопасен, синхронизацию обеспечивает UpdateTracker
+ */
+class UpdateWindow {
+
+    static final int SIZE = 4096;
+    private static final int MASK = SIZE - 1;
+
+    private long watermark;
+    // принятые в работу и обработанные обновления из окна (watermark, watermark + SIZE]
+    private final long[] accepted = new long[SIZE / 64];
+    private final long[] completed = new long[SIZE / 64];
+
+    UpdateWindow(long watermark) {
+        this.watermark = watermark;
+    }
+
+    /**
+     * Принятие обновления в работу. false - обновление уже принималось (повторная доставка)
+     */
+    boolean accept(long id) {
+        if (watermark == 0 || id <= watermark - SIZE) {
+            // первое обновление, либо Telegram начал нумерацию заново после долгого перерыва
+            advanceTo(id - 1);
+        } else if (id <= watermark) {
+            return false;
+        } else if (id > watermark + SIZE) {
+            // окно переполнено: самые старые необработанные обновления больше не отслеживаются
+            advanceTo(id - SIZE);
+        }
+        if (isSet(accepted, id)) return false;
+        set(accepted, id);
+        return true;
+    }
+
+    /**
+     * Обновление обработано. watermark сдвигается, пока обработаны все обновления подряд
+     */
+    void complete(long id) {
+        if (id <= watermark || id > watermark + SIZE) return;
+        set(completed, id);
+        while (isSet(completed, watermark + 1)) {
+            watermark++;
+            clear(watermark);
+        }
+    }
+
+    long getWatermark() {
+        return watermark;
+    }
+
+    /**
+     * Обработанные обновления окна (для сохранения в БД)
+     */
+    byte[] completedBits() {
+        byte[] bytes = new byte[SIZE / 8];
+        for (int i = 0; i < bytes.length; i++) bytes[i] = (byte) (completed[i / 8] >>> (i % 8 * 8));
+        return bytes;
+    }
+
+    /**
+     * Восстановление после перезапуска: обработанные обновления снова считаются принятыми,
+     * а принятые, но не обработанные, при повторной доставке будут обработаны
+     */
+    void restoreCompleted(byte[] bytes) {
+        for (int i = 0; i < Math.min(bytes.length, SIZE / 8); i++) {
+            completed[i / 8] |= (bytes[i] & 0xFFL) << (i % 8 * 8);
+        }
+        System.arraycopy(completed, 0, accepted, 0, completed.length);
+    }
+
+    private void advanceTo(long newWatermark) {
+        if (Math.abs(newWatermark - watermark) >= SIZE) {
+            Arrays.fill(accepted, 0);
+            Arrays.fill(completed, 0);
+        } else {
+            for (long id = watermark + 1; id <= newWatermark; id++) clear(id);
+        }
+        watermark = newWatermark;
+    }
+
+    private void clear(long id) {
+        int index = (int) (id & MASK);
+        long bit = ~(1L << index);
+        accepted[index >>> 6] &= bit;
+        completed[index >>> 6] &= bit;
+    }
+
+    private static boolean isSet(long[] bits, long id) {
+        int index = (int) (id & MASK);
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private static void set(long[] bits, long id) {
+        int index = (int) (id & MASK);
+        bits[index >>> 6] |= 1L << index;
+    }
+}
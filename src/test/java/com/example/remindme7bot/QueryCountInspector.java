@@ -0,0 +1,35 @@
+package com.example.remindme7bot;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Счётчик SQL-запросов Hibernate для тестов. Подключается свойством
+ * spring.jpa.properties.hibernate.session_factory.statement_inspector
+ */
+public class QueryCountInspector implements StatementInspector {
+
+    private static final List<String> statements = new CopyOnWriteArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        statements.add(sql);
+        return sql;
+    }
+
+    public static void reset() {
+        statements.clear();
+    }
+
+    public static List<String> statements() {
+        return List.copyOf(statements);
+    }
+
+    public static void assertQueryCount(int expected) {
+        assertEquals(expected, statements.size(), "Unexpected SQL statements: " + statements);
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.remindme7bot.benchmark;
+
+import com.example.remindme7bot.config.BotConfig;
+import com.example.remindme7bot.model.Todo;
+import com.example.remindme7bot.repository.TodoRepository;
+import com.example.remindme7bot.service.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.io.Serializable;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Контекст приложения для бенчмарков: все сервисы бота на встроенной H2,
+ * без регистрации в Telegram и без сетевых запросов (execute заглушен).
+ * Без @Configuration, чтобы класс не попадал в сканирование компонентов приложения
+ */
+@EnableAutoConfiguration
+@EntityScan(basePackageClasses = Todo.class)
+@EnableJpaRepositories(basePackageClasses = TodoRepository.class)
+@Import({BotConfig.class, BotMetrics.class, TodoService.class, TodoListCache.class, TodoSearchIndex.class,
+        NotifyScheduleIndex.class, ChatStateStore.class, UpdateDispatcher.class, OutboundMessageQueue.class,
+        UpdateTracker.class, InboundLimiter.class, Broadcaster.class, KeyboardSetups.class})
+public class BenchmarkContext {
+
+    @Bean
+    public StubTelegramBot telegramBot(BotConfig config) {
+        return new StubTelegramBot(config);
+    }
+
+    public static ConfigurableApplicationContext start() {
+        // аргументы командной строки важнее application.properties, поэтому MySQL заменяется на H2
+        return SpringApplication.run(BenchmarkContext.class,
+                "--MY_API_TOKEN=benchmark",
+                "--spring.datasource.url=jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.hibernate.ddl-auto=create",
+                "--spring.jpa.show-sql=false",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN",
+                // лимиты Telegram и входящих сообщений в бенчмарках не нужны: меряем сам бот
+                "--bot.outbound.global-rate=100000000",
+                "--bot.outbound.chat-rate=100000000",
+                "--bot.outbound.chat-burst=100000000",
+                "--bot.inbound.chat-rate=100000000",
+                "--bot.inbound.chat-burst=100000000",
+                "--bot.inbound.shed-queue-depth=100000000");
+    }
+
+    static Update textUpdate(int updateId, long chatId, String text) {
+        Chat chat = new Chat(chatId, "private");
+        chat.setFirstName("Bench");
+        Message message = new Message();
+        message.setMessageId(updateId);
+        message.setChat(chat);
+        message.setText(text);
+        Update update = new Update();
+        update.setUpdateId(updateId);
+        update.setMessage(message);
+        return update;
+    }
+
+    static Method privateMethod(String name, Class<?>... parameterTypes) {
+        try {
+            Method method = TelegramBot.class.getDeclaredMethod(name, parameterTypes);
+            method.setAccessible(true);
+            return method;
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static void invoke(Method method, Object target, Object... args) {
+        try {
+            method.invoke(target, args);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Бот, у которого вместо запросов к Telegram считается количество отправленных сообщений
+     */
+    public static class StubTelegramBot extends TelegramBot {
+
+        // конструктор TelegramBot вызывает execute до инициализации полей подкласса
+        private static final AtomicLong SENT = new AtomicLong();
+
+        public StubTelegramBot(BotConfig config) {
+            super(config);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T extends Serializable, M extends BotApiMethod<T>> T execute(M method) {
+            if (!(method instanceof SendMessage send)) return null;
+            SENT.incrementAndGet();
+            Message message = new Message();
+            message.setChat(new Chat(Long.valueOf(send.getChatId()), "private"));
+            message.setText(send.getText());
+            return (T) message;
+        }
+
+        public long getSent() {
+            return SENT.get();
+        }
+
+        /**
+         * Ожидание, пока очередь отправки не передаст в execute заданное количество сообщений
+         */
+        public void awaitSent(long target) {
+            while (SENT.get() < target) Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.remindme7bot.benchmark;
+
+import com.example.remindme7bot.model.Todo;
+import com.example.remindme7bot.model.User;
+import com.example.remindme7bot.repository.UserRepository;
+import com.example.remindme7bot.service.TodoService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ежедневная рассылка напоминаний (checkDeadlines) по таблице из todos задач.
+ * Дедлайны равномерно распределены на 30 дней вперёд, по 10 задач на пользователя.
+ * Время включает постановку всех напоминаний в очередь отправки
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CheckDeadlinesBenchmark {
+
+    private static final int TODOS_PER_USER = 10;
+    private static final int INSERT_CHUNK = 5_000;
+
+    @Param({"10000", "100000", "1000000"})
+    public int todos;
+
+    private ConfigurableApplicationContext context;
+    private BenchmarkContext.StubTelegramBot bot;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        bot = context.getBean(BenchmarkContext.StubTelegramBot.class);
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        TodoService todoService = context.getBean(TodoService.class);
+
+        LocalDate today = LocalDate.now();
+        int userCount = todos / TODOS_PER_USER;
+        List<User> users = new ArrayList<>(INSERT_CHUNK);
+        for (long chatId = 1; chatId <= userCount; chatId++) {
+            User user = new User();
+            user.setChatId(chatId);
+            users.add(user);
+            if (users.size() == INSERT_CHUNK || chatId == userCount) {
+                userRepository.saveAll(users);
+                users.clear();
+            }
+        }
+        for (long chatId = 1; chatId <= userCount; chatId++) {
+            List<Todo> list = new ArrayList<>(TODOS_PER_USER);
+            for (int i = 0; i < TODOS_PER_USER; i++) {
+                Todo todo = new Todo();
+                todo.setTitle("Задача " + i);
+                todo.setImportant(i % 4 == 0);
+                todo.setDeadline(today.plusDays((chatId * TODOS_PER_USER + i) % 30));
+                list.add(todo);
+            }
+            todoService.createTodos(chatId, list);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public long checkDeadlines() {
+        long before = bot.getSent();
+        bot.checkDeadlines();
+        return bot.getSent() - before;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.remindme7bot.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Путь обновления целиком: onUpdateReceived -> диспетчер -> обработчик команды -> очередь отправки -> execute.
+ * Одна операция - одно обновление; обновления распределены по CHATS чатам
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class DispatchBenchmark {
+
+    private static final int BATCH = 1000;
+    private static final int CHATS = 100;
+
+    @Param({"/help", "/todo"})
+    public String command;
+
+    private ConfigurableApplicationContext context;
+    private BenchmarkContext.StubTelegramBot bot;
+    private Update[] updates;
+    private int nextUpdateId = 1;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        bot = context.getBean(BenchmarkContext.StubTelegramBot.class);
+        updates = new Update[BATCH];
+        for (int i = 0; i < BATCH; i++)
+            updates[i] = BenchmarkContext.textUpdate(0, 1_000_000L + i % CHATS, command);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void dispatch() {
+        long target = bot.getSent() + BATCH;
+        for (Update update : updates) {
+            // повторы update_id отбрасываются диспетчером, поэтому каждый прогон получает новые номера
+            update.setUpdateId(nextUpdateId++);
+            bot.onUpdateReceived(update);
+        }
+        bot.awaitSent(target);
+    }
+}
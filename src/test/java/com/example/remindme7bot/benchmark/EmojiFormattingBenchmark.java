@@ -0,0 +1,35 @@
+package com.example.remindme7bot.benchmark;
+
+import com.example.remindme7bot.service.MessageTemplates;
+import com.vdurmont.emoji.EmojiParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Формирование карточки задачи: разбор эмодзи при каждом сообщении (EmojiParser)
+ * против заранее подготовленного шаблона
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmojiFormattingBenchmark {
+
+    private final int seqNumber = 7;
+    private final String title = "Купить продукты";
+    private final String description = "Молоко, хлеб, сыр и что-нибудь к чаю";
+
+    @Benchmark
+    public String emojiParser() {
+        return EmojiParser.parseToUnicode(":exclamation: Важная задача №" + seqNumber + " :pushpin:\n\n" +
+                "Название: " + title + "\n\nОписание: " + description);
+    }
+
+    @Benchmark
+    public String template() {
+        return MessageTemplates.IMPORTANT_TASK.render(seqNumber, title, description);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.remindme7bot.benchmark;
+
+import com.example.remindme7bot.model.Todo;
+import com.example.remindme7bot.model.User;
+import com.example.remindme7bot.repository.UserRepository;
+import com.example.remindme7bot.service.TodoListCache;
+import com.example.remindme7bot.service.TodoService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.reflect.Method;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Команда /todo для списков разного размера: чтение из БД, нумерация и формирование текста.
+ * cached=false - кэш списка сбрасывается перед каждым вызовом
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class TodoListBenchmark {
+
+    private static final long CHAT_ID = 42L;
+
+    @Param({"10", "100", "1000"})
+    public int todos;
+
+    @Param({"false", "true"})
+    public boolean cached;
+
+    private ConfigurableApplicationContext context;
+    private BenchmarkContext.StubTelegramBot bot;
+    private TodoListCache todoListCache;
+    private Method todoListCommandReceived;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        bot = context.getBean(BenchmarkContext.StubTelegramBot.class);
+        todoListCache = context.getBean(TodoListCache.class);
+        todoListCommandReceived = BenchmarkContext.privateMethod("todoListCommandReceived", Long.class);
+
+        User user = new User();
+        user.setChatId(CHAT_ID);
+        context.getBean(UserRepository.class).save(user);
+        LocalDate today = LocalDate.now();
+        List<Todo> list = new ArrayList<>(todos);
+        for (int i = 0; i < todos; i++) {
+            Todo todo = new Todo();
+            todo.setTitle("Задача " + i);
+            todo.setImportant(i % 5 == 0);
+            // у трети задач нет дедлайна
+            if (i % 3 != 0) todo.setDeadline(today.plusDays(i % 60));
+            list.add(todo);
+        }
+        context.getBean(TodoService.class).createTodos(CHAT_ID, list);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void todoList() {
+        if (!cached) todoListCache.invalidate(CHAT_ID);
+        long target = bot.getSent() + 1;
+        BenchmarkContext.invoke(todoListCommandReceived, bot, CHAT_ID);
+        bot.awaitSent(target);
+    }
+}
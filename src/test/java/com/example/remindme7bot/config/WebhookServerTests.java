@@ -0,0 +1,111 @@
+package com.example.remindme7bot.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebhookServerTests {
+
+    private static final String SECRET = "test-secret";
+    // записанное обновление Telegram (сообщение "/todo")
+    private static final String RECORDED_UPDATE = """
+            {"update_id":%d,
+             "message":{"message_id":10,"date":1697500000,"text":"/todo",
+                        "from":{"id":1196596174,"is_bot":false,"first_name":"Test"},
+                        "chat":{"id":1196596174,"type":"private","first_name":"Test"},
+                        "entities":[{"offset":0,"length":5,"type":"bot_command"}]}}
+            """;
+
+    private final List<Update> received = new CopyOnWriteArrayList<>();
+    private final HttpClient client = HttpClient.newHttpClient();
+    private WebhookServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new WebhookServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                "/webhook", SECRET, 4, received::add);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    void acceptsUpdateWithSecretToken() throws Exception {
+        HttpResponse<Void> response = post(1, SECRET);
+
+        assertEquals(200, response.statusCode());
+        assertEquals(1, received.size());
+        assertEquals(1196596174L, received.get(0).getMessage().getChatId());
+        assertEquals("/todo", received.get(0).getMessage().getText());
+    }
+
+    @Test
+    void rejectsWrongSecretToken() throws Exception {
+        assertEquals(401, post(1, "wrong").statusCode());
+        assertEquals(401, post(2, null).statusCode());
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    void requiresSecretToken() {
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        assertThrows(IllegalArgumentException.class, () -> new WebhookServer(address, "/webhook", "", 1, received::add));
+        assertThrows(IllegalArgumentException.class, () -> new WebhookServer(address, "/webhook", null, 1, received::add));
+    }
+
+    /**
+     * Поток обновлений подряд: все приняты и переданы дальше; выводит пропускную способность и задержку
+     * приёма (для сравнения с long polling в BotLoadTests). Долгий, поэтому только в профиле load-test
+     */
+    @Test
+    @Tag("load")
+    void acceptsBurstOfUpdates() throws Exception {
+        int count = 2000;
+        long[] latencies = new long[count];
+        long started = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            long start = System.nanoTime();
+            assertEquals(200, post(i, SECRET).statusCode());
+            latencies[i] = System.nanoTime() - start;
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        assertEquals(count, received.size());
+        Arrays.sort(latencies);
+        System.out.printf(Locale.ROOT, "Webhook ingest: %d updates in %.2f s, %.1f updates/s, "
+                        + "latency ms: p50 %.2f, p99 %.2f, max %.2f%n",
+                count, seconds, count / seconds, percentile(latencies, 0.50), percentile(latencies, 0.99),
+                percentile(latencies, 1.0));
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    private HttpResponse<Void> post(int updateId, String secret) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + "/webhook"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(RECORDED_UPDATE.formatted(updateId)));
+        if (secret != null) request.header(WebhookServer.SECRET_HEADER, secret);
+        return client.send(request.build(), HttpResponse.BodyHandlers.discarding());
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.remindme7bot.loadtest;
+
+import com.example.remindme7bot.RemindMe7BotApplication;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Нагрузочный тест: бот целиком (long polling, диспетчер, БД H2, очередь отправки)
+ * против заглушки Bot API. Пользователи проходят сценарий из регистрации, создания,
+ * просмотра и редактирования задачи (inline-кнопками под карточкой). Отчёт: пропускная способность, задержка ответа
+ * (от отправки сообщения до получения заглушкой первого ответа) и доля ошибок.
+ * Затем всем пользователям уходит рассылка от администратора.
+ * <p>
+ * Запуск: mvn -P load-test test [-Dloadtest.users=1000 -Dloadtest.concurrency=100]
+ */
+@Tag("load")
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class BotLoadTests {
+
+    private static final int USERS = Integer.getInteger("loadtest.users", 200);
+    private static final int CONCURRENCY = Integer.getInteger("loadtest.concurrency", 20);
+    private static final long REPLY_TIMEOUT_MILLIS = Long.getLong("loadtest.reply-timeout-ms", 10_000);
+    private static final double MAX_ERROR_RATE = Double.parseDouble(System.getProperty("loadtest.max-error-rate", "0.01"));
+    // true - оставить лимиты отправки как у настоящего Telegram (~30 сообщений/с)
+    private static final boolean TELEGRAM_LIMITS = Boolean.getBoolean("loadtest.telegram-limits");
+    private static final long FIRST_CHAT_ID = 10_000_000L;
+    // администратор не зарегистрирован, поэтому сам рассылку не получает
+    private static final long ADMIN_CHAT_ID = 1L;
+    private static final String BROADCAST_TEXT = "Новая версия бота\nСписок задач теперь листается";
+
+    /**
+     * Шаг сценария: сообщение пользователя (или нажатие кнопки с таким префиксом данных
+     * под последним сообщением с кнопками) и количество ответов бота на него
+     */
+    private record Step(String text, boolean button, int replies) {
+        Step(String text, int replies) {
+            this(text, false, replies);
+        }
+
+        static Step press(String action) {
+            return new Step(action, true, 1);
+        }
+    }
+
+    private static final List<Step> SCENARIO = List.of(
+            new Step("/start", 2),
+            new Step("/new", 1),
+            new Step("Купить продукты", 1),
+            new Step("Молоко и хлеб", 2),
+            new Step("/todo", 1),
+            new Step("1", 1),
+            Step.press("deadline"),
+            new Step("2030-01-15", 1),
+            new Step("/1", 1),
+            Step.press("description"),
+            new Step("Молоко, хлеб и сыр", 1),
+            Step.press("title"),
+            new Step("Купить продукты на неделю", 1),
+            Step.press("important"),
+            Step.press("list"),
+            new Step("/find сыр", 1),
+            Step.press("open"),
+            Step.press("done"),
+            new Step("/done", 1),
+            new Step("/todo", 1));
+
+    private static FakeBotApiServer api;
+    private static ConfigurableApplicationContext context;
+
+    private final List<Long> replyLatencies = new ArrayList<>();
+    private final AtomicInteger steps = new AtomicInteger();
+    private final AtomicInteger failedSteps = new AtomicInteger();
+
+    @BeforeAll
+    static void startBot() throws IOException {
+        api = new FakeBotApiServer();
+        api.start();
+        List<String> args = new ArrayList<>(List.of(
+                "--MY_API_TOKEN=load-test",
+                "--bot.api-url=" + api.baseUrl(),
+                "--bot.mode=polling",
+                "--bot.metrics.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.hibernate.ddl-auto=create",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.com.example.remindme7bot=WARN",
+                // сценарий - скрипт без пауз, лимит на входящие сообщения его бы останавливал
+                "--bot.inbound.chat-rate=100000000",
+                "--bot.inbound.chat-burst=100000000",
+                "--bot.admin-chat-ids=" + ADMIN_CHAT_ID));
+        if (!TELEGRAM_LIMITS) {
+            args.add("--bot.outbound.global-rate=100000000");
+            args.add("--bot.outbound.chat-rate=100000000");
+            args.add("--bot.outbound.chat-burst=100000000");
+        }
+        context = SpringApplication.run(RemindMe7BotApplication.class, args.toArray(String[]::new));
+    }
+
+    @AfterAll
+    static void stopBot() {
+        if (context != null) context.close();
+        if (api != null) api.stop();
+    }
+
+    @Test
+    @Order(1)
+    void conversations() throws Exception {
+        AtomicInteger nextUser = new AtomicInteger();
+        ExecutorService users = Executors.newFixedThreadPool(CONCURRENCY);
+        long started = System.nanoTime();
+        for (int i = 0; i < CONCURRENCY; i++) {
+            users.execute(() -> {
+                int user;
+                while ((user = nextUser.getAndIncrement()) < USERS) runConversation(FIRST_CHAT_ID + user);
+            });
+        }
+        users.shutdown();
+        assertTrue(users.awaitTermination(1, TimeUnit.HOURS), "Load test did not finish in time");
+        long elapsedNanos = System.nanoTime() - started;
+
+        double errorRate = (double) failedSteps.get() / (USERS * SCENARIO.size());
+        String report = report(elapsedNanos, errorRate);
+        System.out.println(report);
+        Files.writeString(Path.of("target", "load-test-report.txt"), report);
+
+        assertTrue(errorRate <= MAX_ERROR_RATE, "Error rate " + errorRate + " is above " + MAX_ERROR_RATE);
+    }
+
+    /**
+     * Рассылка после сценария: каждый зарегистрированный пользователь получает сообщение ровно один раз,
+     * у администратора сообщение с ходом рассылки доходит до завершения
+     */
+    @Test
+    @Order(2)
+    void broadcastReachesEveryUserOnce() throws Exception {
+        long started = System.nanoTime();
+        // текст с новой строки после команды - как его обычно набирают для многострочной рассылки
+        api.sendUserMessage(ADMIN_CHAT_ID, "/broadcast\n" + BROADCAST_TEXT);
+
+        FakeBotApiServer.Reply progress;
+        do {
+            progress = api.awaitReply(ADMIN_CHAT_ID, REPLY_TIMEOUT_MILLIS * USERS / CONCURRENCY);
+            assertNotNull(progress, "Broadcast did not finish in time");
+        } while (!progress.text().contains("завершена"));
+        System.out.printf(Locale.ROOT, "Broadcast: %d users in %.2f s, %s%n",
+                USERS, (System.nanoTime() - started) / 1e9, progress.text().replace('\n', ' '));
+        assertTrue(progress.text().contains("ошибок: 0"), progress.text());
+
+        for (int user = 0; user < USERS; user++) {
+            FakeBotApiServer.Reply reply = api.awaitReply(FIRST_CHAT_ID + user, REPLY_TIMEOUT_MILLIS);
+            assertNotNull(reply, "No broadcast for user " + user);
+            assertEquals(BROADCAST_TEXT, reply.text());
+            assertNull(api.awaitReply(FIRST_CHAT_ID + user, 0), "Duplicate broadcast for user " + user);
+        }
+    }
+
+    /**
+     * Сценарий одного пользователя. После первой ошибки сценарий прерывается,
+     * оставшиеся шаги считаются неуспешными
+     */
+    private void runConversation(long chatId) {
+        FakeBotApiServer.Reply[] lastWithButtons = new FakeBotApiServer.Reply[1];
+        for (int i = 0; i < SCENARIO.size(); i++) {
+            Step step = SCENARIO.get(i);
+            if (!runStep(chatId, step, lastWithButtons)) {
+                failedSteps.addAndGet(SCENARIO.size() - i);
+                return;
+            }
+        }
+    }
+
+    private boolean runStep(long chatId, Step step, FakeBotApiServer.Reply[] lastWithButtons) {
+        try {
+            long sentNanos = System.nanoTime();
+            if (!step.button()) {
+                api.sendUserMessage(chatId, step.text());
+            } else {
+                FakeBotApiServer.Reply target = lastWithButtons[0];
+                String data = target == null ? null : target.buttons().stream()
+                        .filter(button -> button.startsWith(step.text() + ":")).findFirst().orElse(null);
+                if (data == null) {
+                    System.out.println("Chat " + chatId + ": no button \"" + step.text() + "\"");
+                    return false;
+                }
+                api.pressButton(chatId, target.messageId(), data);
+            }
+            for (int i = 0; i < step.replies(); i++) {
+                FakeBotApiServer.Reply reply = api.awaitReply(chatId, REPLY_TIMEOUT_MILLIS);
+                if (reply == null) {
+                    System.out.println("Chat " + chatId + ": no reply to \"" + step.text() + "\" (got "
+                            + i + " of " + step.replies() + ")");
+                    return false;
+                }
+                if (i == 0) recordLatency(reply.receivedNanos() - sentNanos);
+                if (!reply.buttons().isEmpty()) lastWithButtons[0] = reply;
+            }
+            steps.incrementAndGet();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private synchronized void recordLatency(long nanos) {
+        replyLatencies.add(nanos);
+    }
+
+    private synchronized String report(long elapsedNanos, double errorRate) {
+        long[] sorted = replyLatencies.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        double seconds = elapsedNanos / 1e9;
+        return String.format(Locale.ROOT, """
+                        Load test: %d users, concurrency %d, %d steps each, telegram limits: %s
+                        Duration:    %.2f s
+                        Throughput:  %.1f updates/s, %.1f replies/s, %d callback answers
+                        Latency ms:  p50 %.2f, p90 %.2f, p99 %.2f, max %.2f
+                        Errors:      %d failed steps (%.3f%%), %d Bot API errors
+                        """,
+                USERS, CONCURRENCY, SCENARIO.size(), TELEGRAM_LIMITS,
+                seconds,
+                steps.get() / seconds, api.getSentMessages() / seconds, api.getCallbackAnswers(),
+                percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99), percentile(sorted, 1.0),
+                failedSteps.get(), errorRate * 100, api.getApiErrors());
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+}
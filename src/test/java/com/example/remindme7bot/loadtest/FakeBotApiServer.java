@@ -0,0 +1,249 @@
+package com.example.remindme7bot.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Локальная заглушка Telegram Bot API для нагрузочных тестов.
+ * Отдаёт боту сообщения пользователей и нажатия inline-кнопок через getUpdates (long polling),
+ * принимает sendMessage и editMessageText и передаёт ответы ожидающим их пользователям
+ */
+class FakeBotApiServer {
+
+    private static final long MAX_POLL_MILLIS = 1000;
+
+    static {
+        // без TCP_NODELAY заголовки и тело ответа уходят отдельными пакетами и каждый запрос ждёт ~40 мс
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final BlockingQueue<ObjectNode> updates = new LinkedBlockingQueue<>();
+    private final Map<Long, BlockingQueue<Reply>> replies = new ConcurrentHashMap<>();
+    private final AtomicInteger updateIds = new AtomicInteger();
+    private final AtomicInteger messageIds = new AtomicInteger();
+    private final AtomicLong apiErrors = new AtomicLong();
+    private final AtomicLong sentMessages = new AtomicLong();
+    private final AtomicLong callbackAnswers = new AtomicLong();
+
+    /**
+     * Ответ бота: время получения заглушкой, id нового или изменённого сообщения, текст
+     * и данные inline-кнопок под ним
+     */
+    record Reply(long receivedNanos, int messageId, String text, List<String> buttons) {
+    }
+
+    FakeBotApiServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        executor = Executors.newCachedThreadPool();
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+    }
+
+    void start() {
+        server.start();
+    }
+
+    void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Адрес для bot.api-url
+     */
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/bot";
+    }
+
+    /**
+     * Текстовое сообщение от пользователя; бот получит его следующим вызовом getUpdates
+     */
+    void sendUserMessage(long chatId, String text) {
+        ObjectNode chat = objectMapper.createObjectNode()
+                .put("id", chatId).put("type", "private").put("first_name", "User" + chatId);
+        ObjectNode from = objectMapper.createObjectNode()
+                .put("id", chatId).put("is_bot", false).put("first_name", "User" + chatId);
+        ObjectNode message = objectMapper.createObjectNode()
+                .put("message_id", messageIds.incrementAndGet())
+                .put("date", System.currentTimeMillis() / 1000)
+                .put("text", text);
+        message.set("chat", chat);
+        message.set("from", from);
+        ObjectNode update = objectMapper.createObjectNode();
+        update.set("message", message);
+        // update_id должны идти в очереди по возрастанию: бот пропускает обновления с id меньше уже полученного
+        synchronized (updates) {
+            update.put("update_id", updateIds.incrementAndGet());
+            updates.add(update);
+        }
+    }
+
+    /**
+     * Нажатие inline-кнопки с данными data под сообщением messageId
+     */
+    void pressButton(long chatId, int messageId, String data) {
+        ObjectNode from = objectMapper.createObjectNode()
+                .put("id", chatId).put("is_bot", false).put("first_name", "User" + chatId);
+        ObjectNode message = objectMapper.createObjectNode()
+                .put("message_id", messageId)
+                .put("date", System.currentTimeMillis() / 1000);
+        message.set("chat", objectMapper.createObjectNode().put("id", chatId).put("type", "private"));
+        ObjectNode query = objectMapper.createObjectNode()
+                .put("id", String.valueOf(chatId) + messageId)
+                .put("chat_instance", String.valueOf(chatId))
+                .put("data", data);
+        query.set("from", from);
+        query.set("message", message);
+        ObjectNode update = objectMapper.createObjectNode();
+        update.set("callback_query", query);
+        synchronized (updates) {
+            update.put("update_id", updateIds.incrementAndGet());
+            updates.add(update);
+        }
+    }
+
+    /**
+     * Ожидание очередного ответа бота в чат
+     */
+    Reply awaitReply(long chatId, long timeoutMillis) throws InterruptedException {
+        return repliesOf(chatId).poll(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    long getApiErrors() {
+        return apiErrors.get();
+    }
+
+    long getSentMessages() {
+        return sentMessages.get();
+    }
+
+    long getCallbackAnswers() {
+        return callbackAnswers.get();
+    }
+
+    private BlockingQueue<Reply> repliesOf(long chatId) {
+        return replies.computeIfAbsent(chatId, id -> new LinkedBlockingQueue<>());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange; InputStream body = exchange.getRequestBody()) {
+            String path = exchange.getRequestURI().getPath();
+            // библиотека обращается к методам в нижнем регистре (getupdates, sendmessage)
+            String method = path.substring(path.lastIndexOf('/') + 1).toLowerCase(Locale.ROOT);
+            JsonNode request = readJson(body);
+            switch (method) {
+                case "getupdates" -> respond(exchange, getUpdates(request));
+                case "sendmessage" -> respond(exchange, sendMessage(request));
+                case "editmessagetext" -> respond(exchange, editMessageText(request));
+                case "answercallbackquery" -> {
+                    callbackAnswers.incrementAndGet();
+                    respond(exchange, objectMapper.getNodeFactory().booleanNode(true));
+                }
+                case "setmycommands", "deletewebhook" -> respond(exchange, objectMapper.getNodeFactory().booleanNode(true));
+                case "getme" -> respond(exchange, objectMapper.createObjectNode()
+                        .put("id", 1).put("is_bot", true).put("first_name", "RemindMe7Bot"));
+                default -> {
+                    apiErrors.incrementAndGet();
+                    respondError(exchange, 404, "Not Found: method " + method);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private JsonNode readJson(InputStream body) throws IOException {
+        byte[] bytes = body.readAllBytes();
+        return bytes.length == 0 ? objectMapper.createObjectNode() : objectMapper.readTree(bytes);
+    }
+
+    private JsonNode getUpdates(JsonNode request) throws InterruptedException {
+        int limit = request.path("limit").asInt(100);
+        long timeoutMillis = Math.min(TimeUnit.SECONDS.toMillis(request.path("timeout").asLong(0)), MAX_POLL_MILLIS);
+        ArrayNode result = objectMapper.createArrayNode();
+        ObjectNode first = updates.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+        if (first == null) return result;
+        result.add(first);
+        List<ObjectNode> rest = new ArrayList<>();
+        updates.drainTo(rest, limit - 1);
+        rest.forEach(result::add);
+        return result;
+    }
+
+    private JsonNode sendMessage(JsonNode request) {
+        return reply(request, messageIds.incrementAndGet());
+    }
+
+    private JsonNode editMessageText(JsonNode request) {
+        return reply(request, request.path("message_id").asInt());
+    }
+
+    private JsonNode reply(JsonNode request, int messageId) {
+        long receivedNanos = System.nanoTime();
+        long chatId = request.path("chat_id").asLong();
+        String text = request.path("text").asText();
+        sentMessages.incrementAndGet();
+        repliesOf(chatId).add(new Reply(receivedNanos, messageId, text, buttons(request.path("reply_markup"))));
+
+        ObjectNode message = objectMapper.createObjectNode()
+                .put("message_id", messageId)
+                .put("date", System.currentTimeMillis() / 1000)
+                .put("text", text);
+        message.set("chat", objectMapper.createObjectNode().put("id", chatId).put("type", "private"));
+        return message;
+    }
+
+    private List<String> buttons(JsonNode markup) {
+        // reply_markup может прийти строкой с JSON (form-параметр) или объектом
+        if (markup.isTextual()) {
+            try {
+                markup = objectMapper.readTree(markup.asText());
+            } catch (IOException e) {
+                return List.of();
+            }
+        }
+        List<String> buttons = new ArrayList<>();
+        for (JsonNode row : markup.path("inline_keyboard"))
+            for (JsonNode button : row) buttons.add(button.path("callback_data").asText());
+        return buttons;
+    }
+
+    private void respond(HttpExchange exchange, JsonNode result) throws IOException {
+        ObjectNode response = objectMapper.createObjectNode().put("ok", true);
+        response.set("result", result);
+        write(exchange, 200, response);
+    }
+
+    private void respondError(HttpExchange exchange, int code, String description) throws IOException {
+        write(exchange, code, objectMapper.createObjectNode()
+                .put("ok", false).put("error_code", code).put("description", description));
+    }
+
+    private void write(HttpExchange exchange, int status, JsonNode response) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(response);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.remindme7bot.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatStageTests {
+
+    @Test
+    void codesRoundTrip() {
+        for (ChatStage stage : ChatStage.values()) assertEquals(stage, ChatStage.fromCode(stage.getCode()));
+        assertNull(ChatStage.fromCode((byte) ChatStage.values().length));
+        assertNull(ChatStage.fromCode((byte) -1));
+    }
+
+    @Test
+    void inputStagesShowOnlyCancelKeyboard() {
+        // меню задачи - на inline-кнопках: при вводе значений остаётся только "Отменить"
+        for (ChatStage stage : ChatStage.values()) assertEquals(ChatStage.Keyboard.CANCEL, stage.getKeyboard());
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.remindme7bot.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NotifyScheduleTests {
+
+    @Test
+    void parsesTimeAndDays() {
+        NotifySchedule schedule = NotifySchedule.parse(" 8:00; 2; 1,2,3 ");
+
+        assertEquals(LocalTime.of(8, 0), schedule.getTime());
+        assertEquals(480, schedule.getMinuteOfDay());
+        assertTrue(schedule.isDue(false, 2));
+        assertFalse(schedule.isDue(false, 1));
+        assertTrue(schedule.isDue(true, 3));
+        assertEquals(3, schedule.getMaxDaysBefore());
+        assertEquals("8:00; 2; 1,2,3", schedule.toString());
+    }
+
+    @Test
+    void rejectsWrongFormat() {
+        assertThrows(IllegalArgumentException.class, () -> NotifySchedule.parse("8:00; 2"));
+        assertThrows(IllegalArgumentException.class, () -> NotifySchedule.parse("25:00; 2; 1"));
+        assertThrows(IllegalArgumentException.class, () -> NotifySchedule.parse("8:00; два; 1"));
+        assertThrows(IllegalArgumentException.class, () -> NotifySchedule.parse("8:00; 45; 1"));
+    }
+}
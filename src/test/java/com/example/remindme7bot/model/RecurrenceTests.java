@@ -0,0 +1,49 @@
+package com.example.remindme7bot.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecurrenceTests {
+
+    // понедельник
+    private static final LocalDate MONDAY = LocalDate.of(2030, 1, 7);
+
+    @Test
+    void parsesAndFormatsRules() {
+        assertEquals("ежедневно", Recurrence.parse("Каждый день").toString());
+        assertEquals("еженедельно: пн, пт", Recurrence.parse("еженедельно пт,пн").toString());
+        assertEquals("ежемесячно: 15", Recurrence.parse("ежемесячно: 15").toString());
+        assertEquals("каждые 3 дн.", Recurrence.parse("каждые 3 дня").toString());
+        assertEquals("каждые 3 дн.", Recurrence.parse(Recurrence.parse("каждые 3 дня").toString()).toString());
+        assertThrows(IllegalArgumentException.class, () -> Recurrence.parse("еженедельно: пн, xx"));
+        assertThrows(IllegalArgumentException.class, () -> Recurrence.parse("ежемесячно: 32"));
+        assertThrows(IllegalArgumentException.class, () -> Recurrence.parse("каждые 0 дней"));
+    }
+
+    @Test
+    void missedOccurrenceMovesToToday() {
+        Recurrence everyThreeDays = Recurrence.parse("каждые 3 дня");
+        // пропущены повторения 7 и 10 числа; сегодня 11-е - следующее 13-го, в той же фазе
+        assertEquals(MONDAY.plusDays(6), everyThreeDays.occurrence(MONDAY, MONDAY.plusDays(4)));
+        assertEquals(MONDAY.plusDays(3), everyThreeDays.occurrence(MONDAY.plusDays(3), MONDAY));
+
+        Recurrence weekly = Recurrence.parse("еженедельно: ср");
+        assertEquals(MONDAY.plusDays(9), weekly.occurrence(MONDAY, MONDAY.plusDays(3)));
+    }
+
+    @Test
+    void completionAdvancesToFollowingOccurrence() {
+        Recurrence weekly = Recurrence.parse("еженедельно: пн, чт");
+        assertEquals(MONDAY.plusDays(3), weekly.following(MONDAY, MONDAY));
+        assertEquals(MONDAY.plusDays(7), weekly.following(MONDAY, MONDAY.plusDays(3)));
+
+        // 31 число в феврале - последний день месяца, в марте снова 31-е
+        Recurrence monthly = Recurrence.parse("ежемесячно").anchoredAt(LocalDate.of(2030, 1, 31));
+        LocalDate february = monthly.following(LocalDate.of(2030, 1, 31), LocalDate.of(2030, 1, 31));
+        assertEquals(LocalDate.of(2030, 2, 28), february);
+        assertEquals(LocalDate.of(2030, 3, 31), monthly.following(february, february));
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.remindme7bot.service;
+
+import com.example.remindme7bot.config.BotConfig;
+import com.example.remindme7bot.model.ChatStage;
+import com.example.remindme7bot.model.ChatState;
+import com.example.remindme7bot.model.ChatStateRecord;
+import com.example.remindme7bot.repository.ChatStateRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "MY_API_TOKEN=test",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect"
+})
+@Import({BotConfig.class, ChatStateStore.class})
+class ChatStateStoreTests {
+
+    @Autowired
+    private ChatStateStore chatStateStore;
+    @Autowired
+    private ChatStateRepository chatStateRepository;
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void putAfterSkippedRecordsDoesNotDuplicate() {
+        long now = System.currentTimeMillis();
+        entityManager.persist(record(1L, (byte) 99, now));
+        entityManager.persist(record(2L, ChatStage.EDITING_TITLE.getCode(), now - TimeUnit.DAYS.toMillis(2)));
+        entityManager.flush();
+        entityManager.clear();
+
+        chatStateStore.load();
+        // вне теста каждый запрос репозитория - своя транзакция
+        entityManager.clear();
+        assertNull(chatStateStore.get(1L));
+        assertNull(chatStateStore.get(2L));
+        // записи, которые не загрузились, удалены - новое состояние сохраняется одним INSERT
+        chatStateStore.put(1L, new ChatState(ChatStage.NEW_TODO_TITLE, null));
+        chatStateStore.put(2L, new ChatState(ChatStage.NEW_TODO_TITLE, null));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(ChatStage.NEW_TODO_TITLE.getCode(), chatStateRepository.findById(1L).orElseThrow().getStage());
+        assertEquals(2, chatStateRepository.count());
+    }
+
+    private static ChatStateRecord record(Long chatId, byte stage, long updatedAt) {
+        ChatStateRecord record = new ChatStateRecord();
+        record.setChatId(chatId);
+        record.setStage(stage);
+        record.setUpdatedAt(new Timestamp(updatedAt));
+        record.setNewRecord(true);
+        return record;
+    }
+}
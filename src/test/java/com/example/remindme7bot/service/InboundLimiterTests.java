@@ -0,0 +1,57 @@
+package com.example.remindme7bot.service;
+
+import com.example.remindme7bot.config.BotConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InboundLimiterTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private UpdateDispatcher dispatcher;
+
+    @AfterEach
+    void tearDown() {
+        if (dispatcher != null) dispatcher.shutdown();
+    }
+
+    @Test
+    void expensiveCommandsUseChatLimitFaster() {
+        InboundLimiter limiter = limiter(1000);
+
+        assertEquals(InboundLimiter.Decision.ADMITTED, limiter.admit(1L, "todo"));
+        assertEquals(InboundLimiter.Decision.ADMITTED, limiter.admit(1L, "todo"));
+        assertEquals(InboundLimiter.Decision.THROTTLED, limiter.admit(1L, "todo"));
+        // другие чаты лимит первого не трогает
+        assertEquals(InboundLimiter.Decision.ADMITTED, limiter.admit(2L, "todo"));
+        assertEquals(1, registry.counter("bot.updates.throttled", "command", "todo").count());
+
+        assertTrue(limiter.warn(1L));
+        assertFalse(limiter.warn(1L));
+    }
+
+    @Test
+    void shedsOnlyExpensiveCommandsWhenOverloaded() {
+        InboundLimiter limiter = limiter(-1);
+
+        assertEquals(InboundLimiter.Decision.SHED, limiter.admit(1L, "todo"));
+        assertEquals(InboundLimiter.Decision.ADMITTED, limiter.admit(1L, "help"));
+        assertEquals(1, registry.counter("bot.updates.shed", "command", "todo").count());
+    }
+
+    private InboundLimiter limiter(int shedQueueDepth) {
+        BotConfig config = new BotConfig();
+        config.setDispatcherParallelism(1);
+        config.setInboundChatRate(0.001);
+        config.setInboundChatBurst(10);
+        config.setInboundCosts(Map.of("todo", 5));
+        config.setInboundShedQueueDepth(shedQueueDepth);
+        BotMetrics metrics = new BotMetrics(registry);
+        dispatcher = new UpdateDispatcher(config, new UpdateTracker());
+        return new InboundLimiter(config, dispatcher, metrics);
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.remindme7bot.service;
+
+import com.example.remindme7bot.config.BotConfig;
+import com.example.remindme7bot.repository.UpdateOffsetRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.telegram.telegrambots.bots.DefaultAbsSender;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.ApiResponse;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class OutboundMessageQueueTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private OutboundMessageQueue queue;
+
+    @AfterEach
+    void tearDown() {
+        if (queue != null) queue.shutdown();
+    }
+
+    @Test
+    void keepsOrderWithinChatUnderChatLimit() throws Exception {
+        RecordingSender sender = new RecordingSender(0);
+        queue = new OutboundMessageQueue(config(100, 20, 1), new BotMetrics(registry));
+        queue.start(sender);
+
+        CompletableFuture<Message> last = null;
+        for (int i = 0; i < 5; i++) last = queue.submit(1L, message(1L, "m" + i), OutboundMessageQueue.Priority.INTERACTIVE);
+        last.get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of("m0", "m1", "m2", "m3", "m4"), sender.texts);
+    }
+
+    @Test
+    void retriesAfterTooManyRequests() throws Exception {
+        RecordingSender sender = new RecordingSender(1);
+        queue = new OutboundMessageQueue(config(100, 100, 100), new BotMetrics(registry));
+        queue.start(sender);
+
+        Message result = queue.submit(7L, message(7L, "hello"), OutboundMessageQueue.Priority.BULK)
+                .get(5, TimeUnit.SECONDS);
+
+        assertNotNull(result);
+        assertEquals(2, sender.calls.get());
+        assertEquals(0, queue.getQueueDepth());
+        assertEquals(1, registry.get("bot.telegram.requests").tag("outcome", "too_many_requests").timer().count());
+        assertEquals(1, registry.get("bot.telegram.requests").tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    void sendsToDifferentChatsInParallel() throws Exception {
+        RecordingSender sender = new RecordingSender(0, 50);
+        queue = new OutboundMessageQueue(config(1000, 100, 100), new BotMetrics(registry));
+        queue.start(sender);
+
+        List<CompletableFuture<Message>> sent = new ArrayList<>();
+        for (long chatId = 1; chatId <= 20; chatId++)
+            sent.add(queue.submit(chatId, message(chatId, "m" + chatId), OutboundMessageQueue.Priority.BULK));
+        CompletableFuture.allOf(sent.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+        // скорость не ограничена временем ответа одного запроса
+        assertTrue(sender.maxConcurrent.get() > 1, "max concurrent requests: " + sender.maxConcurrent.get());
+    }
+
+    @Test
+    void sendsQueuedMessagesBeforeShutdown() throws Exception {
+        RecordingSender sender = new RecordingSender(0, 20);
+        queue = new OutboundMessageQueue(config(1000, 100, 100), new BotMetrics(registry));
+        queue.start(sender);
+
+        List<CompletableFuture<Message>> sent = new ArrayList<>();
+        for (int i = 0; i < 10; i++) sent.add(queue.submit(1L, message(1L, "m" + i), OutboundMessageQueue.Priority.BULK));
+        queue.shutdown();
+
+        for (CompletableFuture<Message> future : sent) assertNotNull(future.getNow(null));
+        assertEquals(10, sender.texts.size());
+    }
+
+    /**
+     * Ответ на обновление, которое UpdateDispatcher дорабатывает при остановке контекста,
+     * отправляется: очередь останавливается после диспетчера, хотя зарегистрирована позже
+     */
+    @Test
+    void deliversReplyOfUpdateDrainedOnShutdown() throws Exception {
+        RecordingSender sender = new RecordingSender(0, 20);
+        CompletableFuture<CompletableFuture<Message>> reply = new CompletableFuture<>();
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test",
+                    Map.of("MY_API_TOKEN", "test", "bot.dispatcher.parallelism", "1")));
+            context.registerBean(SimpleMeterRegistry.class, () -> registry);
+            context.registerBean(UpdateOffsetRepository.class, () -> mock(UpdateOffsetRepository.class));
+            context.register(BotConfig.class, BotMetrics.class, UpdateTracker.class, UpdateDispatcher.class,
+                    OutboundMessageQueue.class);
+            context.refresh();
+            OutboundMessageQueue outbound = context.getBean(OutboundMessageQueue.class);
+            outbound.start(sender);
+
+            Update update = new Update();
+            update.setUpdateId(1);
+            context.getBean(UpdateDispatcher.class).dispatch(update, u -> true, u -> {
+                sleep(200);
+                reply.complete(outbound.submit(1L, message(1L, "reply"), OutboundMessageQueue.Priority.INTERACTIVE));
+            });
+        }
+
+        assertNotNull(reply.get(1, TimeUnit.SECONDS).getNow(null));
+        assertEquals(List.of("reply"), sender.texts);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static BotConfig config(double globalRate, double chatRate, double chatBurst) {
+        BotConfig config = new BotConfig();
+        config.setOutboundGlobalRate(globalRate);
+        config.setOutboundChatRate(chatRate);
+        config.setOutboundChatBurst(chatBurst);
+        config.setOutboundMaxAttempts(3);
+        config.setOutboundSenders(4);
+        config.setOutboundDrainSeconds(5);
+        return config;
+    }
+
+    private static SendMessage message(long chatId, String text) {
+        return new SendMessage(String.valueOf(chatId), text);
+    }
+
+    /**
+     * Заглушка Telegram: первые failures вызовов отвечают 429 с retry_after = 0,
+     * каждый вызов занимает delayMillis
+     */
+    private static class RecordingSender extends DefaultAbsSender {
+        final List<String> texts = new CopyOnWriteArrayList<>();
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicInteger concurrent = new AtomicInteger();
+        final AtomicInteger maxConcurrent = new AtomicInteger();
+        final int failures;
+        final long delayMillis;
+        static final ApiResponse<?> TOO_MANY_REQUESTS = parse(
+                "{\"ok\":false,\"error_code\":429,\"description\":\"Too Many Requests\"," +
+                        "\"parameters\":{\"retry_after\":0}}");
+
+        RecordingSender(int failures) {
+            this(failures, 0);
+        }
+
+        RecordingSender(int failures, long delayMillis) {
+            super(new DefaultBotOptions(), "test-token");
+            this.failures = failures;
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T extends Serializable, Method extends BotApiMethod<T>> T execute(Method method)
+                throws TelegramApiException {
+            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            try {
+                sleep(delayMillis);
+                if (calls.incrementAndGet() <= failures) {
+                    throw new TelegramApiRequestException("Too Many Requests", TOO_MANY_REQUESTS);
+                }
+                texts.add(((SendMessage) method).getText());
+                return (T) new Message();
+            } finally {
+                concurrent.decrementAndGet();
+            }
+        }
+
+        private static ApiResponse<?> parse(String json) {
+            try {
+                return new ObjectMapper().readValue(json, ApiResponse.class);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.remindme7bot.service;
+
+import com.example.remindme7bot.model.TodoReminderView;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReminderDigestTests {
+
+    private final List<Long> chats = new ArrayList<>();
+    private final List<String> texts = new ArrayList<>();
+
+    @Test
+    void oneMessagePerUser() {
+        ReminderDigest digest = new ReminderDigest(true, this::send);
+        digest.add(reminder(1L, "first", false), 1);
+        digest.add(reminder(1L, "second", true), 2);
+        digest.add(reminder(2L, "third", false), 1);
+        digest.finish();
+
+        assertEquals(List.of(1L, 2L), chats);
+        assertEquals(2, digest.getMessages());
+        assertTrue(texts.get(0).contains("«first» - завтра"));
+        assertTrue(texts.get(0).contains("«second» - через 2 дня"));
+        assertFalse(texts.get(0).contains("third"));
+    }
+
+    @Test
+    void splitsLongDigestUnderTelegramLimit() {
+        ReminderDigest digest = new ReminderDigest(true, this::send);
+        String title = "x".repeat(1000);
+        for (int i = 0; i < 10; i++) digest.add(reminder(1L, title, false), 1);
+        digest.add(reminder(1L, "y".repeat(5000), false), 1);
+        digest.finish();
+
+        assertTrue(texts.size() > 1);
+        assertTrue(texts.stream().allMatch(text -> text.length() <= ReminderDigest.MAX_MESSAGE_LENGTH));
+        assertEquals(10, texts.stream().mapToInt(text -> text.split(title, -1).length - 1).sum());
+    }
+
+    @Test
+    void perTaskModeSendsEachReminder() {
+        ReminderDigest digest = new ReminderDigest(false, this::send);
+        digest.add(reminder(1L, "first", false), 1);
+        digest.add(reminder(1L, "second", true), 0);
+        digest.finish();
+
+        assertEquals(2, texts.size());
+        assertEquals(MessageTemplates.REMINDER_TOMORROW.render("first"), texts.get(0));
+        assertEquals(MessageTemplates.REMINDER_IMPORTANT.render("second", "сегодня"), texts.get(1));
+    }
+
+    private void send(Long chatId, String text) {
+        chats.add(chatId);
+        texts.add(text);
+    }
+
+    private static TodoReminderView reminder(Long chatId, String title, boolean important) {
+        return new TodoReminderView(chatId, title, important, LocalDate.now(), null);
+    }
+}
@@ -0,0 +1,272 @@
+package com.example.remindme7bot.service;
+
+import com.example.remindme7bot.QueryCountInspector;
+import com.example.remindme7bot.config.BotConfig;
+import com.example.remindme7bot.model.DoneItem;
+import com.example.remindme7bot.model.Recurrence;
+import com.example.remindme7bot.model.Todo;
+import com.example.remindme7bot.model.TodoListItem;
+import com.example.remindme7bot.model.TodoPage;
+import com.example.remindme7bot.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка количества SQL-запросов на основных путях чтения и записи задач
+ */
+@DataJpaTest(properties = {
+        "MY_API_TOKEN=test",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.example.remindme7bot.QueryCountInspector"
+})
+@Import({BotConfig.class, TodoService.class, TodoListCache.class, TodoSearchIndex.class,
+        RecurrenceCatchUp.class, BotMetrics.class, SimpleMeterRegistry.class})
+class TodoQueryCountTests {
+
+    private static final long CHAT_ID = 42L;
+    private static final int PAGE_SIZE = 10;
+
+    @Autowired
+    private TodoService todoService;
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private TodoSearchIndex todoSearchIndex;
+    @Autowired
+    private RecurrenceCatchUp recurrenceCatchUp;
+
+    private final List<Todo> todos = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setChatId(CHAT_ID);
+        entityManager.persist(user);
+        for (int i = 0; i < 3; i++) {
+            Todo todo = new Todo();
+            todo.setTitle("task " + i);
+            todo.setUser(user);
+            todos.add(entityManager.persist(todo));
+        }
+        entityManager.flush();
+        todoService.getFirstPage(CHAT_ID, PAGE_SIZE);
+        entityManager.flush();
+        entityManager.clear();
+        // индекс общий для всех тестов, а задачи после каждого теста откатываются
+        todoSearchIndex.invalidate(CHAT_ID);
+        QueryCountInspector.reset();
+    }
+
+    @Test
+    void unchangedPageWritesNothingAndSkipsUsersJoin() {
+        List<TodoListItem> items = todoService.getFirstPage(CHAT_ID, PAGE_SIZE).items();
+        entityManager.flush();
+
+        assertEquals(3, items.size());
+        // пропущенные повторения, задачи с дедлайном, задачи без дедлайна; записи нет
+        QueryCountInspector.assertQueryCount(3);
+        assertTrue(QueryCountInspector.statements().stream().noneMatch(sql -> sql.contains("users_data_table")));
+    }
+
+    @Test
+    void renumberingWritesOnlyChangedRows() {
+        Todo last = todos.get(2);
+        todoService.updateDeadline(last.getId(), LocalDate.now());
+        entityManager.flush();
+        entityManager.clear();
+        QueryCountInspector.reset();
+
+        List<TodoListItem> items = todoService.getFirstPage(CHAT_ID, PAGE_SIZE).items();
+        entityManager.flush();
+
+        assertEquals(last.getId(), items.get(0).id());
+        assertEquals(List.of(1, 2, 3), items.stream().map(TodoListItem::seqNumber).toList());
+        // три чтения страницы, сброс занятых номеров, загрузка трёх сдвинувшихся задач и пакет UPDATE
+        QueryCountInspector.assertQueryCount(6);
+    }
+
+    @Test
+    void editingTitleDoesNotLoadUser() {
+        todoService.updateTitle(todos.get(0).getId(), "renamed");
+        entityManager.flush();
+
+        QueryCountInspector.assertQueryCount(2);
+        assertTrue(QueryCountInspector.statements().stream().noneMatch(sql -> sql.contains("users_data_table")));
+    }
+
+    @Test
+    void creatingTodoDoesNotLoadUser() {
+        todoService.createTodo("new", "description", CHAT_ID);
+        entityManager.flush();
+
+        QueryCountInspector.assertQueryCount(1);
+    }
+
+    @Test
+    void bulkCreateIsBatched() {
+        List<Todo> drafts = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Todo todo = new Todo();
+            todo.setTitle("bulk " + i);
+            drafts.add(todo);
+        }
+        todoService.createTodos(CHAT_ID, drafts);
+        entityManager.flush();
+
+        // не больше одного обращения к последовательности и один пакет INSERT
+        assertTrue(QueryCountInspector.statements().size() <= 2, "Statements: " + QueryCountInspector.statements());
+        assertEquals(43, todoService.getFirstPage(CHAT_ID, 50).items().size());
+    }
+
+    @Test
+    void pagesWalkDatedThenUndatedTodos() {
+        List<Todo> dated = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Todo todo = new Todo();
+            todo.setTitle("dated " + i);
+            todo.setDeadline(LocalDate.now().plusDays(3 - i));
+            dated.add(todo);
+        }
+        todoService.createTodos(CHAT_ID, dated);
+        entityManager.flush();
+        entityManager.clear();
+
+        TodoPage first = todoService.getFirstPage(CHAT_ID, 2);
+        assertEquals(List.of("dated 2", "dated 1"), first.items().stream().map(TodoListItem::title).toList());
+        assertFalse(first.hasPrevious());
+        assertTrue(first.hasNext());
+
+        TodoPage second = todoService.getPageAfter(CHAT_ID, first.last().deadline(), first.last().id(), 3, 2);
+        assertEquals(List.of("dated 0", "task 0"), second.items().stream().map(TodoListItem::title).toList());
+        assertEquals(3, second.first().seqNumber());
+
+        TodoPage third = todoService.getPageAfter(CHAT_ID, null, second.last().id(), 5, 2);
+        assertEquals(List.of("task 1", "task 2"), third.items().stream().map(TodoListItem::title).toList());
+        assertEquals(6, third.last().seqNumber());
+        assertFalse(third.hasNext());
+        entityManager.flush();
+
+        QueryCountInspector.reset();
+        TodoPage back = todoService.getPageBefore(CHAT_ID, null, third.first().id(), 3, 2);
+        assertEquals(second.items(), back.items());
+        // номера не изменились - только выборки страницы, без UPDATE
+        assertTrue(QueryCountInspector.statements().stream().noneMatch(sql -> sql.startsWith("update")),
+                "Statements: " + QueryCountInspector.statements());
+    }
+
+    @Test
+    void searchLoadsIndexOnceAndFollowsEdits() {
+        assertEquals(3, todoSearchIndex.search(CHAT_ID, "TASK", 10).size());
+        assertEquals(List.of(todos.get(1).getId()),
+                todoSearchIndex.search(CHAT_ID, "ta 1", 10).stream().map(TodoSearchIndex.Match::id).toList());
+        QueryCountInspector.assertQueryCount(1);
+
+        todoService.updateDescription(todos.get(0).getId(), "Ёлка, игрушки");
+        todoService.completeTodo(CHAT_ID, todos.get(2).getId());
+        entityManager.flush();
+        QueryCountInspector.reset();
+
+        assertEquals("task 0", todoSearchIndex.search(CHAT_ID, "елк", 10).get(0).title());
+        assertTrue(todoSearchIndex.search(CHAT_ID, "task 2", 10).isEmpty());
+        assertEquals(2, todoSearchIndex.search(CHAT_ID, "task", 10).size());
+        QueryCountInspector.assertQueryCount(0);
+    }
+
+    @Test
+    void completingRecurringTodoIsOneUpdate() {
+        Todo todo = todos.get(0);
+        todoService.updateRecurrence(todo.getId(), Recurrence.parse("ежедневно"));
+        entityManager.flush();
+        entityManager.clear();
+        QueryCountInspector.reset();
+
+        Todo completed = todoService.completeTodo(CHAT_ID, todo.getId());
+        entityManager.flush();
+
+        assertEquals(LocalDate.now().plusDays(1), completed.getDeadline());
+        // загрузка задачи и UPDATE дедлайна, без удаления и новых строк
+        QueryCountInspector.assertQueryCount(2);
+        assertTrue(QueryCountInspector.statements().get(1).startsWith("update"));
+    }
+
+    @Test
+    void completedTodosMoveToArchiveInBatches() {
+        todoService.completeTodo(CHAT_ID, todos.get(0).getId());
+        todoService.completeTodo(CHAT_ID, todos.get(1).getId());
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(1, todoService.getFirstPage(CHAT_ID, PAGE_SIZE).items().size());
+        List<DoneItem> done = todoService.getDonePage(CHAT_ID, null, null, 10);
+        assertEquals(List.of(todos.get(1).getId(), todos.get(0).getId()), done.stream().map(DoneItem::id).toList());
+
+        QueryCountInspector.reset();
+        assertEquals(1, todoService.archiveCompleted(1));
+        assertEquals(1, todoService.archiveCompleted(10));
+        assertEquals(0, todoService.archiveCompleted(10));
+        entityManager.clear();
+
+        // история та же, но уже из архива; вторая страница - по курсору
+        assertEquals(done, todoService.getDonePage(CHAT_ID, null, null, 10));
+        DoneItem first = done.get(0);
+        assertEquals(List.of(done.get(1)), todoService.getDonePage(CHAT_ID, first.completedAt(), first.id(), 10));
+    }
+
+    @Test
+    void newerDonePageWalksBackAcrossArchive() {
+        for (Todo todo : todos) todoService.completeTodo(CHAT_ID, todo.getId());
+        entityManager.flush();
+        assertEquals(1, todoService.archiveCompleted(1));
+        entityManager.clear();
+
+        List<DoneItem> done = todoService.getDonePage(CHAT_ID, null, null, 10);
+        assertEquals(3, done.size());
+        DoneItem oldest = done.get(2);
+        // ближайшие к задаче более новые, в порядке истории
+        assertEquals(done.subList(1, 2), todoService.getNewerDonePage(CHAT_ID, oldest.completedAt(), oldest.id(), 1));
+        assertEquals(done.subList(0, 2), todoService.getNewerDonePage(CHAT_ID, oldest.completedAt(), oldest.id(), 10));
+        DoneItem newest = done.get(0);
+        assertTrue(todoService.getNewerDonePage(CHAT_ID, newest.completedAt(), newest.id(), 10).isEmpty());
+    }
+
+    @Test
+    void reminderScanIsOneQuery() {
+        todoService.forEachDueReminder(LocalDate.now(), reminder -> {
+        });
+
+        QueryCountInspector.assertQueryCount(1);
+    }
+
+    @Test
+    void overdueRecurringTodosAdvanceBeforeReminderScan() {
+        Todo todo = todos.get(0);
+        todoService.updateDeadline(todo.getId(), LocalDate.now().minusDays(3));
+        todoService.updateRecurrence(todo.getId(), Recurrence.parse("ежедневно"));
+        entityManager.flush();
+        entityManager.clear();
+
+        // пропущенное повторение не попадает в ограниченный по датам запрос напоминаний
+        List<String> titles = new ArrayList<>();
+        todoService.forEachDueReminder(LocalDate.now().minusDays(1), reminder -> titles.add(reminder.title()));
+        assertTrue(titles.isEmpty());
+
+        recurrenceCatchUp.advanceOverdue();
+        entityManager.flush();
+        entityManager.clear();
+        assertTrue(todoService.getOverdueRecurring(LocalDate.now(), 10).isEmpty());
+
+        todoService.forEachDueReminder(LocalDate.now().minusDays(1), reminder -> titles.add(reminder.title()));
+        assertEquals(List.of(todo.getTitle()), titles);
+    }
+}
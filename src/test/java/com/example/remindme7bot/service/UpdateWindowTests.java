@@ -0,0 +1,54 @@
+package com.example.remindme7bot.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpdateWindowTests {
+
+    @Test
+    void skipsRedeliveredUpdates() {
+        UpdateWindow window = new UpdateWindow(0);
+        assertTrue(window.accept(100_001));
+        assertTrue(window.accept(100_002));
+        assertFalse(window.accept(100_002));
+
+        window.complete(100_002);
+        assertEquals(100_000, window.getWatermark());
+        window.complete(100_001);
+        assertEquals(100_002, window.getWatermark());
+        assertFalse(window.accept(100_001));
+        assertTrue(window.accept(100_003));
+    }
+
+    @Test
+    void restoresProcessedUpdatesAfterRestart() {
+        UpdateWindow window = new UpdateWindow(10);
+        for (int id = 11; id <= 13; id++) assertTrue(window.accept(id));
+        window.complete(11);
+        window.complete(13);
+
+        UpdateWindow restored = new UpdateWindow(window.getWatermark());
+        restored.restoreCompleted(window.completedBits());
+        assertFalse(restored.accept(11));
+        // принято, но не обработано до остановки - обрабатывается заново
+        assertTrue(restored.accept(12));
+        assertFalse(restored.accept(13));
+        restored.complete(12);
+        assertEquals(13, restored.getWatermark());
+    }
+
+    @Test
+    void slidesPastStuckUpdates() {
+        UpdateWindow window = new UpdateWindow(4999);
+        assertTrue(window.accept(5000));
+        assertTrue(window.accept(4999 + UpdateWindow.SIZE));
+        assertEquals(4999, window.getWatermark());
+        // 5000 так и не обработано: окно сдвигается, чтобы принять следующие обновления
+        assertTrue(window.accept(5000 + UpdateWindow.SIZE));
+        assertEquals(5000, window.getWatermark());
+        assertFalse(window.accept(4999 + UpdateWindow.SIZE));
+        // нумерация начата заново - обновления не считаются повторами
+        assertTrue(window.accept(7));
+    }
+}